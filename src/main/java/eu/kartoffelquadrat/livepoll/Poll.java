@@ -1,9 +1,9 @@
 package eu.kartoffelquadrat.livepoll;
 
-import eu.kartoffelquadrat.livepoll.pollutils.AlphabetSanitizer;
-import eu.kartoffelquadrat.livepoll.pollutils.Hyphenizer;
-import java.util.LinkedHashMap;
+import eu.kartoffelquadrat.livepoll.pollutils.Slugifier;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Represents all static and dynmically collected data of a poll.
@@ -13,7 +13,14 @@ import java.util.Map;
 public class Poll {
 
   private final String topic;
-  private final Map<String, Integer> optionVotes;
+  private final String[] options;
+
+  // Sanitized / hyphenized option to position in options array. Built once, so votes need no
+  // string conversion.
+  private final Map<String, Integer> optionIndexes;
+
+  // Vote counter per option, same order as options array
+  private final AtomicIntegerArray optionVotes;
 
 
   /**
@@ -26,10 +33,12 @@ public class Poll {
 
     // Store topic and initialize registered votes for all options to 0.
     this.topic = topic;
-    this.optionVotes = new LinkedHashMap<>();
-    for (String option : options) {
-      this.optionVotes.put(option, 0);
+    this.options = options.clone();
+    this.optionIndexes = new HashMap<>();
+    for (int i = 0; i < options.length; i++) {
+      this.optionIndexes.putIfAbsent(Slugifier.slugify(options[i]), i);
     }
+    this.optionVotes = new AtomicIntegerArray(options.length);
   }
 
   /**
@@ -47,48 +56,52 @@ public class Poll {
    * @return all available options in order.
    */
   public String[] getOptions() {
-    return optionVotes.keySet().toArray(new String[0]);
+    return options.clone();
   }
 
 
   /**
-   * Adds a vote for a given option.
+   * Adds a vote for a given option. Does not allocate any objects.
    *
    * @param option the string for the selected poll response option.
    */
   public void voteForOption(String option) {
-
-    String rawOptionMatch = findRawMatch(option);
-    optionVotes.put(rawOptionMatch, optionVotes.get(rawOptionMatch) + 1);
+    optionVotes.incrementAndGet(findOptionIndex(option));
   }
 
   /**
-   * Helper method to find the raw option (option in human readable form) that matches a porivided
-   * sanitized from, as e g received from a QR code.
+   * Helper method to find the position of the raw option (option in human readable form) that
+   * matches a porivided sanitized from, as e g received from a QR code.
    *
    * @param sanitized the sanitized asn hyphenized option to look up
-   * @return the human readable string option the provided sanitized option
+   * @return the position of the human readable string option the provided sanitized option
    */
-  private String findRawMatch(String sanitized) {
-    // options in poll object are not encoded in sanitize / hyphenized form. Must iterate to lookup.
-    for (String rawOption : optionVotes.keySet()) {
-
-      if (Hyphenizer.hyphenize(AlphabetSanitizer.sanitize(rawOption)).equals(sanitized)) {
-        return rawOption;
-      }
+  private int findOptionIndex(String sanitized) {
+    Integer index = optionIndexes.get(sanitized);
+    if (index == null) {
+      throw new RuntimeException("Poll has no option \"" + sanitized + "\".");
     }
-    return null;
+    return index;
   }
 
   /**
-   * Getter to look up the amount of votes for a given option.
+   * Getter to look up the amount of votes for a given option. Does not allocate any objects.
    *
    * @param option as the sanitized / hyphenized option to look up.
    * @return the amount of votes received for this option so far.
    */
   public int getVotes(String option) {
+    return optionVotes.get(findOptionIndex(option));
+  }
 
-    String rawMatch = findRawMatch(option);
-    return optionVotes.get(rawMatch);
+  /**
+   * Getter to look up the amount of votes for the option at a given position. Does not allocate
+   * any objects.
+   *
+   * @param position as the position of the option in the options array.
+   * @return the amount of votes received for this option so far.
+   */
+  public int getVotes(int position) {
+    return optionVotes.get(position);
   }
 }
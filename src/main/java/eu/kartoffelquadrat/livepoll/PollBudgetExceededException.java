@@ -0,0 +1,23 @@
+package eu.kartoffelquadrat.livepoll;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown if a new poll does not fit into the configured poll budget. Translated to an HTTP 507
+ * response when thrown in a controller.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@ResponseStatus(HttpStatus.INSUFFICIENT_STORAGE)
+public class PollBudgetExceededException extends RuntimeException {
+
+  /**
+   * Exception constructor.
+   *
+   * @param message as the human readable reason for the rejection.
+   */
+  public PollBudgetExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,106 @@
+package eu.kartoffelquadrat.livepoll;
+
+/**
+ * Memory and disk bytes accounted for a single poll. Heap bytes are an estimate for a 64 bit JVM
+ * with compressed references and compact strings, disk bytes are the sizes of the poll's QR files.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class PollFootprint {
+
+  // Object header plus four references, for the poll object itself
+  private static final int POLL_BYTES = 32;
+
+  // HashMap object without its table, plus the AtomicIntegerArray object without its array
+  private static final int MAP_BYTES = 48 + 16;
+
+  // HashMap node plus the boxed option index
+  private static final int ENTRY_BYTES = 32 + 16;
+
+  // Entry of the poll in the poll manager's maps
+  private static final int INDEX_BYTES = 2 * 40;
+
+  private long heapBytes;
+  private long diskBytes;
+
+  /**
+   * Footprint constructor.
+   *
+   * @param heapBytes as the estimated amount of heap bytes occupied by the poll.
+   * @param diskBytes as the amount of disk bytes occupied by the poll's files.
+   */
+  public PollFootprint(long heapBytes, long diskBytes) {
+    this.heapBytes = heapBytes;
+    this.diskBytes = diskBytes;
+  }
+
+  /**
+   * Estimates the heap bytes retained by a poll and its index entry, covering topic, option
+   * strings, vote counters and map structures.
+   *
+   * @param pollId as the id under which the poll is indexed.
+   * @param poll   as the poll to estimate.
+   * @return the estimated amount of retained heap bytes.
+   */
+  public static long estimateHeapBytes(String pollId, Poll poll) {
+
+    String[] options = poll.getOptions();
+    // default table capacity, doubled whenever the load factor of 0.75 is exceeded
+    int capacity = 16;
+    while (options.length > capacity * 3 / 4) {
+      capacity *= 2;
+    }
+    long bytes = POLL_BYTES + MAP_BYTES + align(16 + 4L * capacity) + INDEX_BYTES;
+
+    // options array and vote counter array
+    bytes += 2 * align(16 + 4L * options.length);
+    bytes += estimateStringBytes(pollId) + estimateStringBytes(poll.getTopic());
+    for (String option : options) {
+      // option string plus its sanitized / hyphenized form, which is at most as long
+      bytes += ENTRY_BYTES + 2 * estimateStringBytes(option);
+    }
+    return bytes;
+  }
+
+  /**
+   * Estimates the heap bytes of a string: the string object plus its backing byte array, using one
+   * byte per character for Latin-1 strings and two otherwise.
+   *
+   * @param string as the string to estimate.
+   * @return the estimated amount of heap bytes.
+   */
+  static long estimateStringBytes(String string) {
+    int bytesPerChar = 1;
+    for (int i = 0; i < string.length(); i++) {
+      if (string.charAt(i) > 0xFF) {
+        bytesPerChar = 2;
+        break;
+      }
+    }
+    return 24 + align(16 + (long) string.length() * bytesPerChar);
+  }
+
+  private static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  public long getHeapBytes() {
+    return heapBytes;
+  }
+
+  public long getDiskBytes() {
+    return diskBytes;
+  }
+
+  void setHeapBytes(long heapBytes) {
+    this.heapBytes = heapBytes;
+  }
+
+  void setDiskBytes(long diskBytes) {
+    this.diskBytes = diskBytes;
+  }
+
+  public long getTotalBytes() {
+    return heapBytes + diskBytes;
+  }
+}
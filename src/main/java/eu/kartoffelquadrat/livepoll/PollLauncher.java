@@ -2,6 +2,7 @@ package eu.kartoffelquadrat.livepoll;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -27,12 +28,37 @@ public class PollLauncher {
    */
   public static void main(String[] args) throws IOException {
 
+    // Time spent by the JVM before reaching main
+    logPhase("jvm", ManagementFactory.getRuntimeMXBean().getUptime());
+
     // ensure pollTmpDir exists
+    long phaseStart = System.nanoTime();
     File tmpDir = new File(pollTmpDir);
     if (!tmpDir.exists()) {
       Files.createDirectories(tmpDir.toPath());
     }
-    SpringApplication.run(PollLauncher.class, args);
+    logPhase("tmpdir", (System.nanoTime() - phaseStart) / 1000000);
+
+    // Start spring context. Includes the optional warm-up, which runs before the port is opened,
+    // and the initialization of the dispatcher servlet if warm-up is enabled.
+    phaseStart = System.nanoTime();
+    SpringApplication application = new SpringApplication(PollLauncher.class);
+    StartupWarmup.prepare(application);
+    application.run(args);
+    logPhase("spring", (System.nanoTime() - phaseStart) / 1000000);
+
+    // Overall time until the first poll can be created
+    logPhase("ready", ManagementFactory.getRuntimeMXBean().getUptime());
   }
 
+  /**
+   * Helper method to print the duration of a single startup phase, so time-to-first-poll can be
+   * tracked across versions.
+   *
+   * @param phase  as a short name of the startup phase.
+   * @param millis as the duration of the phase in milliseconds.
+   */
+  public static void logPhase(String phase, long millis) {
+    System.out.println("[startup] " + phase + ": " + millis + " ms");
+  }
 }
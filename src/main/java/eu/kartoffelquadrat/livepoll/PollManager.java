@@ -2,32 +2,104 @@ package eu.kartoffelquadrat.livepoll;
 
 import eu.kartoffelquadrat.livepoll.pollutils.DateAndTopicPollIdGenerator;
 import eu.kartoffelquadrat.livepoll.pollutils.PollIdGenerator;
+import eu.kartoffelquadrat.livepoll.pollutils.Slugifier;
+import eu.kartoffelquadrat.livepoll.store.DatabasePollStore;
+import eu.kartoffelquadrat.livepoll.store.InMemoryPollStore;
+import eu.kartoffelquadrat.livepoll.store.PollStore;
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
- * Spring component responsible for storage of all polls, no matter if ongoing or terminated.
+ * Spring component responsible for storage of all polls, no matter if ongoing or terminated. The
+ * polls themselves are kept by a poll store, which by default holds them in heap only. Keeps
+ * track of the memory and disk bytes occupied by every poll and guards the configured budget:
+ * depending on configuration, new polls that exceed the budget are either rejected or make room by
+ * evicting the oldest polls. Poll lookups are lock free, since they are on the vote path. Files of
+ * removed polls are deleted only after the manager's lock is released.
  *
  * @author Maximilian Schiedermeier
  */
 @Component
 public class PollManager {
 
-  private final Map<String, Poll> indexedPolls;
+  private final PollStore indexedPolls;
+
+  private final Map<String, PollFootprint> footprints;
+
+  // Poll id to option codes and the data URIs of their QR codes, if QR codes are inlined
+  private final Map<String, Map<String, String>> qrImages;
 
   PollIdGenerator idGenerator;
 
+  private final long budgetBytes;
+
+  private final boolean evictOldest;
+
+  private long usedBytes;
+
+  private int evictedPolls;
+
+  private int rejectedPolls;
+
+  // Expected size of a stored QR code, refined whenever the actual QR codes of a poll are
+  // accounted.
+  private long qrFileBytes = 1024;
+
+  /**
+   * PollManager bean constructor. Consumes both poll store implementations and decides at runtime
+   * which one to use, based on properties file.
+   *
+   * @param idGenerator       id generator that provides index strings for polls that are offered
+   *                          to the manager.
+   * @param inMemoryPollStore as the store that keeps polls in heap only.
+   * @param databasePollStore as the store that additionally persists polls to a database.
+   * @param useDatabase       true if polls are persisted to the database.
+   * @param budgetBytes       maximum amount of heap and disk bytes all polls together may occupy.
+   * @param evictOldest       true if the oldest polls are evicted to make room for new polls,
+   *                          false if new polls are rejected when the budget is exhausted.
+   * @throws SQLException in case the database store is selected but can not be opened.
+   */
+  @Autowired
+  public PollManager(DateAndTopicPollIdGenerator idGenerator,
+                     InMemoryPollStore inMemoryPollStore,
+                     DatabasePollStore databasePollStore,
+                     @Value("${poll.store.database:false}") boolean useDatabase,
+                     @Value("${poll.budget.bytes:67108864}") long budgetBytes,
+                     @Value("${poll.budget.evict:false}") boolean evictOldest)
+      throws SQLException {
+    this(idGenerator, useDatabase ? databasePollStore : inMemoryPollStore, budgetBytes,
+        evictOldest);
+    if (useDatabase) {
+      databasePollStore.open();
+    }
+  }
+
   /**
    * PollManager constructor.
    *
    * @param idGenerator id generator that provides index strings for polls that are offered to the
    *                    manager.
+   * @param pollStore   store that keeps all polls offered to the manager.
+   * @param budgetBytes maximum amount of heap and disk bytes all polls together may occupy.
+   * @param evictOldest true if the oldest polls are evicted to make room for new polls, false if
+   *                    new polls are rejected when the budget is exhausted.
    */
-  public PollManager(@Autowired DateAndTopicPollIdGenerator idGenerator) {
-    this.indexedPolls = new LinkedHashMap<>();
+  public PollManager(PollIdGenerator idGenerator, PollStore pollStore, long budgetBytes,
+                     boolean evictOldest) {
+    this.indexedPolls = pollStore;
+    this.footprints = new LinkedHashMap<>();
+    this.qrImages = new LinkedHashMap<>();
     this.idGenerator = idGenerator;
+    this.budgetBytes = budgetBytes;
+    this.evictOldest = evictOldest;
   }
 
   /**
@@ -37,26 +109,190 @@ public class PollManager {
    * @return the poll object associated to the id if found. Null instead.
    */
   public Poll getPollByIdentifier(String pollId) {
-
-    if (indexedPolls.containsKey(pollId)) {
-      return indexedPolls.get(pollId);
-    }
-    return null;
+    return indexedPolls.get(pollId);
   }
 
   /**
-   * Adds a new poll to the manager. Builds a unique id using the autowired id generator.
+   * Adds a new poll to the manager. Builds a unique id using the autowired id generator. The disk
+   * bytes of the poll are estimated until the actual files are accounted with updateDiskUsage.
    *
    * @param poll as the new poll to add.
    * @return the unique poll id generated for the newly created poll.
+   * @throws PollBudgetExceededException in case the poll does not fit into the budget.
    */
   public String addPoll(Poll poll) {
+    List<File> obsoleteFiles = new LinkedList<>();
+    try {
+      return addPoll(poll, obsoleteFiles);
+    } finally {
+      deleteFiles(obsoleteFiles);
+    }
+  }
+
+  private synchronized String addPoll(Poll poll, List<File> obsoleteFiles) {
 
     String pollId = idGenerator.generatePollId(poll.getTopic());
+    PollFootprint footprint = new PollFootprint(PollFootprint.estimateHeapBytes(pollId, poll),
+        poll.getOptions().length * qrFileBytes);
+
+    // A poll with the same id is replaced, so its bytes are available to the new one.
+    PollFootprint replaced = footprints.get(pollId);
+    long available = budgetBytes - usedBytes + (replaced == null ? 0 : replaced.getTotalBytes());
+    if (footprint.getTotalBytes() > budgetBytes
+        || (!evictOldest && footprint.getTotalBytes() > available)) {
+      rejectedPolls++;
+      throw new PollBudgetExceededException("Poll requires " + footprint.getTotalBytes()
+          + " bytes, but only " + Math.max(0, available) + " of " + budgetBytes
+          + " budget bytes are available.");
+    }
+    if (replaced != null) {
+      removePoll(pollId, obsoleteFiles);
+    }
+
+    // Make room by evicting the oldest polls, if configured
+    while (usedBytes + footprint.getTotalBytes() > budgetBytes && indexedPolls.size() > 0) {
+      removePoll(indexedPolls.getOldestPollId(), obsoleteFiles);
+      evictedPolls++;
+    }
+
     indexedPolls.put(pollId, poll);
+    footprints.put(pollId, footprint);
+    usedBytes += footprint.getTotalBytes();
     return pollId;
   }
 
+  /**
+   * Replaces the estimated disk bytes of a poll by the actual size of its files on disk. If the
+   * poll was evicted or replaced while its files were written, nothing accounts for the files any
+   * more, so they are deleted.
+   *
+   * @param pollId    as the id of the poll whose files were written.
+   * @param poll      as the poll whose files were written.
+   * @param diskBytes as the total size of the poll's files.
+   */
+  public void updateDiskUsage(String pollId, Poll poll, long diskBytes) {
+    List<File> obsoleteFiles = new LinkedList<>();
+    try {
+      updateDiskUsage(pollId, poll, diskBytes, obsoleteFiles);
+    } finally {
+      deleteFiles(obsoleteFiles);
+    }
+  }
+
+  private synchronized void updateDiskUsage(String pollId, Poll poll, long diskBytes,
+                                            List<File> obsoleteFiles) {
+
+    Poll current = indexedPolls.get(pollId);
+    if (current != poll) {
+      collectQrFiles(pollId, poll, current, obsoleteFiles);
+      return;
+    }
+    PollFootprint footprint = footprints.get(pollId);
+    usedBytes += diskBytes - footprint.getDiskBytes();
+    footprint.setDiskBytes(diskBytes);
+    int files = indexedPolls.get(pollId).getOptions().length;
+    if (files > 0 && diskBytes > 0) {
+      qrFileBytes = Math.max(1, diskBytes / files);
+    }
+  }
+
+  /**
+   * Stores the inlined QR codes of a poll, so the poll page can be rendered without any file
+   * access. The cached strings are accounted as heap bytes of the poll and replace the disk bytes
+   * estimated at admission, since no files are written. The data URIs may exceed that estimate,
+   * so the budget is checked again: depending on configuration the oldest other polls are evicted,
+   * or the poll is removed and rejected.
+   *
+   * @param pollId   as the id of the poll the QR codes belong to.
+   * @param poll     as the poll the QR codes belong to.
+   * @param dataUris as the option codes and the data URIs of their QR codes.
+   * @throws PollBudgetExceededException in case the poll with its QR codes does not fit into the
+   *                                     budget.
+   */
+  public void cacheQrImages(String pollId, Poll poll, Map<String, String> dataUris) {
+    List<File> obsoleteFiles = new LinkedList<>();
+    try {
+      cacheQrImages(pollId, poll, dataUris, obsoleteFiles);
+    } finally {
+      deleteFiles(obsoleteFiles);
+    }
+  }
+
+  private synchronized void cacheQrImages(String pollId, Poll poll, Map<String, String> dataUris,
+                                          List<File> obsoleteFiles) {
+
+    if (indexedPolls.get(pollId) != poll) {
+      return;
+    }
+    PollFootprint footprint = footprints.get(pollId);
+    long cachedBytes = 0;
+    for (String dataUri : dataUris.values()) {
+      cachedBytes += PollFootprint.estimateStringBytes(dataUri);
+    }
+    qrImages.put(pollId, dataUris);
+    usedBytes += cachedBytes - footprint.getDiskBytes();
+    footprint.setHeapBytes(footprint.getHeapBytes() + cachedBytes);
+    footprint.setDiskBytes(0);
+    if (!dataUris.isEmpty()) {
+      qrFileBytes = Math.max(1, cachedBytes / dataUris.size());
+    }
+
+    // Make room by evicting the oldest other polls, if configured
+    while (evictOldest && usedBytes > budgetBytes
+        && !pollId.equals(indexedPolls.getOldestPollId())) {
+      removePoll(indexedPolls.getOldestPollId(), obsoleteFiles);
+      evictedPolls++;
+    }
+    if (usedBytes > budgetBytes) {
+      long available = budgetBytes - usedBytes + footprint.getTotalBytes();
+      removePoll(pollId, obsoleteFiles);
+      rejectedPolls++;
+      throw new PollBudgetExceededException("Poll with inlined QR codes requires "
+          + footprint.getTotalBytes() + " bytes, but only " + Math.max(0, available) + " of "
+          + budgetBytes + " budget bytes are available.");
+    }
+  }
+
+  /**
+   * Removes a poll whose creation failed, e.g. because its QR codes could not be generated.
+   * Releases its budget share and deletes any QR code files already written. Does nothing to
+   * another poll stored under the same id.
+   *
+   * @param pollId as the id of the poll to remove.
+   * @param poll   as the poll to remove.
+   */
+  public void discardPoll(String pollId, Poll poll) {
+    List<File> obsoleteFiles = new LinkedList<>();
+    try {
+      synchronized (this) {
+        Poll current = indexedPolls.get(pollId);
+        if (current == poll) {
+          removePoll(pollId, obsoleteFiles);
+        } else {
+          collectQrFiles(pollId, poll, current, obsoleteFiles);
+        }
+      }
+    } finally {
+      deleteFiles(obsoleteFiles);
+    }
+  }
+
+  /**
+   * Looks up the inlined QR code of a poll option.
+   *
+   * @param pollId     as the id of the poll to look up.
+   * @param optionCode as the kebap notated option to look up.
+   * @return the data URI of the QR code, or null if the poll's QR codes are not inlined.
+   */
+  public synchronized String getQrImage(String pollId, String optionCode) {
+
+    Map<String, String> dataUris = qrImages.get(pollId);
+    if (dataUris == null) {
+      return null;
+    }
+    return dataUris.get(optionCode);
+  }
+
   /**
    * Looks up if the given poll is known to the manager.
    *
@@ -64,6 +300,86 @@ public class PollManager {
    * @return true if the poll exists, false if not.
    */
   public boolean isExistentPoll(String pollid) {
-    return indexedPolls.containsKey(pollid);
+    return indexedPolls.contains(pollid);
+  }
+
+  /**
+   * Builds a report of the current budget usage, overall and per poll.
+   *
+   * @return map with budget, used heap and disk bytes, poll counts and per poll footprints.
+   */
+  public synchronized Map<String, Object> getUsage() {
+
+    long heapBytes = 0;
+    long diskBytes = 0;
+    Map<String, PollFootprint> perPoll = new LinkedHashMap<>();
+    for (Map.Entry<String, PollFootprint> footprint : footprints.entrySet()) {
+      heapBytes += footprint.getValue().getHeapBytes();
+      diskBytes += footprint.getValue().getDiskBytes();
+      perPoll.put(footprint.getKey(),
+          new PollFootprint(footprint.getValue().getHeapBytes(),
+              footprint.getValue().getDiskBytes()));
+    }
+
+    Map<String, Object> usage = new LinkedHashMap<>();
+    usage.put("budgetBytes", budgetBytes);
+    usage.put("usedBytes", usedBytes);
+    usage.put("heapBytes", heapBytes);
+    usage.put("diskBytes", diskBytes);
+    usage.put("polls", indexedPolls.size());
+    usage.put("evictedPolls", evictedPolls);
+    usage.put("rejectedPolls", rejectedPolls);
+    usage.put("evictOldest", evictOldest);
+    usage.put("perPoll", perPoll);
+    return usage;
+  }
+
+  /**
+   * Removes a poll from the index, releases its budget share and collects its QR code files for
+   * deletion.
+   *
+   * @param pollId        as the id of the poll to remove.
+   * @param obsoleteFiles as the list to add the poll's files to.
+   */
+  private void removePoll(String pollId, List<File> obsoleteFiles) {
+
+    PollFootprint footprint = footprints.remove(pollId);
+    usedBytes -= footprint.getTotalBytes();
+    qrImages.remove(pollId);
+    collectQrFiles(pollId, indexedPolls.get(pollId), null, obsoleteFiles);
+    indexedPolls.remove(pollId);
+  }
+
+  /**
+   * Collects the QR code files of a poll for deletion.
+   *
+   * @param pollId        as the id of the poll whose files are collected.
+   * @param poll          as the poll whose files are collected.
+   * @param keep          as a poll stored under the same id, whose files must be kept. Null if
+   *                      none.
+   * @param obsoleteFiles as the list to add the files to.
+   */
+  private static void collectQrFiles(String pollId, Poll poll, Poll keep,
+                                     List<File> obsoleteFiles) {
+
+    for (String option : poll.getOptions()) {
+      String optionCode = Slugifier.slugify(option);
+      if (keep == null || Arrays.stream(keep.getOptions())
+          .noneMatch(kept -> Slugifier.slugify(kept).equals(optionCode))) {
+        obsoleteFiles.add(new File(PollLauncher.pollTmpDir, pollId + "-" + optionCode + ".png"));
+      }
+    }
+  }
+
+  /**
+   * Deletes files collected while the manager was locked. Runs without the lock, so votes never
+   * wait for disk I/O.
+   *
+   * @param obsoleteFiles as the files to delete.
+   */
+  private static void deleteFiles(List<File> obsoleteFiles) {
+    for (File file : obsoleteFiles) {
+      file.delete();
+    }
   }
 }
@@ -0,0 +1,149 @@
+package eu.kartoffelquadrat.livepoll;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import eu.kartoffelquadrat.livepoll.controllers.WebControllers;
+import eu.kartoffelquadrat.livepoll.pollutils.Slugifier;
+import eu.kartoffelquadrat.livepoll.qrgenerator.QrImageGenerator;
+import java.io.IOException;
+import java.util.Map;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+/**
+ * Optional warm-up phase. Exercises the slug, QR, PNG, JSON and template paths with a throwaway
+ * poll, so that their one-time initialization does not happen on the presenter's clock. Runs once
+ * all beans are created, which is before the embedded web server starts accepting requests. The
+ * dispatcher servlet is additionally initialized while the server starts, instead of on the first
+ * request. Enabled with the "startup.warmup" property.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Component
+public class StartupWarmup implements SmartInitializingSingleton {
+
+  private final boolean enabled;
+
+  private final QrImageGenerator qrImageGenerator;
+
+  private final ITemplateEngine templateEngine;
+
+  private final ObjectMapper objectMapper;
+
+  private final WebControllers webControllers;
+
+  @Value("${server.port}")
+  String port;
+
+  /**
+   * Bean constructor.
+   *
+   * @param enabled          as the flag to decide whether the warm-up is run at all.
+   * @param qrImageGenerator as the generator also used for the QR codes of actual polls.
+   * @param templateEngine   as the thymeleaf engine that renders the poll page.
+   * @param objectMapper     as the json mapper that also deserializes polls of REST requests.
+   * @param webControllers   as the controllers that build the model of the poll page.
+   */
+  public StartupWarmup(@Value("${startup.warmup:false}") boolean enabled,
+                       @Autowired QrImageGenerator qrImageGenerator,
+                       @Autowired ITemplateEngine templateEngine,
+                       @Autowired ObjectMapper objectMapper,
+                       @Autowired WebControllers webControllers) {
+    this.enabled = enabled;
+    this.qrImageGenerator = qrImageGenerator;
+    this.templateEngine = templateEngine;
+    this.objectMapper = objectMapper;
+    this.webControllers = webControllers;
+  }
+
+  /**
+   * Prepares the application for the warm-up, before the spring context is created. If the warm-up
+   * is enabled, the dispatcher servlet is loaded on startup, unless
+   * "spring.mvc.servlet.load-on-startup" is configured explicitly.
+   *
+   * @param application as the spring application about to be run.
+   */
+  public static void prepare(SpringApplication application) {
+    application.addListeners((ApplicationListener<ApplicationEvent>) event -> {
+      if (event instanceof ApplicationEnvironmentPreparedEvent) {
+        ConfigurableEnvironment environment =
+            ((ApplicationEnvironmentPreparedEvent) event).getEnvironment();
+        if (environment.getProperty("startup.warmup", Boolean.class, false)) {
+          environment.getPropertySources().addLast(new MapPropertySource("startup-warmup",
+              Map.of("spring.mvc.servlet.load-on-startup", 1)));
+        }
+      }
+    });
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+
+    if (!enabled) {
+      return;
+    }
+
+    try {
+      warmUp();
+    } catch (IOException | WriterException e) {
+      // The warm-up is only an optimization, a failure must not prevent the service from starting.
+      System.out.println("[startup] warm-up failed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Runs a throwaway poll through all code paths of a poll creation and a poll page rendering.
+   * Nothing is registered at the poll manager and nothing is written to disk.
+   *
+   * @throws IOException     in case the json parsing or the in-memory PNG encoding failed.
+   * @throws WriterException in case the QR encoding failed.
+   */
+  private void warmUp() throws IOException, WriterException {
+
+    // Deserialization of a poll creation request body
+    long phaseStart = System.nanoTime();
+    objectMapper.readValue("{\"topic\":\"Warm up\",\"options\":[\"Yes\",\"Unsure\",\"No\"]}",
+        Poll.class);
+    PollLauncher.logPhase("warmup-json", (System.nanoTime() - phaseStart) / 1000000);
+
+    // Poll object and slug creation
+    phaseStart = System.nanoTime();
+    String[] options = {"Yes", "Unsure", "No"};
+    Poll poll = new Poll("Warm up", options);
+    String[] optionCodes = new String[options.length];
+    for (int i = 0; i < options.length; i++) {
+      optionCodes[i] = Slugifier.slugify(options[i]);
+      poll.voteForOption(optionCodes[i]);
+      poll.getVotes(optionCodes[i]);
+    }
+    String pollId = Slugifier.slugify(poll.getTopic());
+    PollLauncher.logPhase("warmup-slugs", (System.nanoTime() - phaseStart) / 1000000);
+
+    // QR matrix encoding and PNG serialization (into memory, not to the poll directory)
+    phaseStart = System.nanoTime();
+    BitMatrix qrMatrix = qrImageGenerator.encodeQr(
+        "http://127.0.0.1:" + port + "/polls/" + pollId + "/options/" + optionCodes[0]);
+    PollLauncher.logPhase("warmup-qr", (System.nanoTime() - phaseStart) / 1000000);
+    phaseStart = System.nanoTime();
+    qrImageGenerator.exportQrToDataUri(qrMatrix);
+    PollLauncher.logPhase("warmup-png", (System.nanoTime() - phaseStart) / 1000000);
+
+    // Parsing and rendering of the poll page template
+    phaseStart = System.nanoTime();
+    Context context = new Context();
+    context.setVariables(webControllers.buildPollModel(pollId, poll));
+    templateEngine.process("poll", context);
+    PollLauncher.logPhase("warmup-template", (System.nanoTime() - phaseStart) / 1000000);
+  }
+}
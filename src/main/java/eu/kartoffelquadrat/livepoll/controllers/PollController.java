@@ -4,14 +4,20 @@ import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
 import eu.kartoffelquadrat.livepoll.Poll;
 import eu.kartoffelquadrat.livepoll.PollManager;
-import eu.kartoffelquadrat.livepoll.pollutils.AlphabetSanitizer;
-import eu.kartoffelquadrat.livepoll.pollutils.Hyphenizer;
+import eu.kartoffelquadrat.livepoll.pollutils.Slugifier;
 import eu.kartoffelquadrat.livepoll.qrgenerator.LocalIpResolver;
 import eu.kartoffelquadrat.livepoll.qrgenerator.LocalResourceEncoder;
 import eu.kartoffelquadrat.livepoll.qrgenerator.QrImageGenerator;
+import eu.kartoffelquadrat.livepoll.traffic.TrafficRecorder;
+import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -34,6 +40,11 @@ public class PollController {
 
   PollManager pollManager;
 
+  TrafficRecorder trafficRecorder;
+
+  @Value("${qrcode.inline:false}")
+  boolean inlineQr;
+
   /**
    * Bean constructor.
    *
@@ -44,16 +55,19 @@ public class PollController {
    * @param localIpResolver      asa helper tool to look up the own LAN IP address of this
    *                             webservice.
    * @param pollManager          as the manager object that indexes all active polls.
+   * @param trafficRecorder      as the optional recorder for all incoming poll traffic.
    */
   @Autowired
   public PollController(QrImageGenerator qrImageGenerator,
                         LocalResourceEncoder localResourceEncoder,
                         LocalIpResolver localIpResolver,
-                        PollManager pollManager) {
+                        PollManager pollManager,
+                        TrafficRecorder trafficRecorder) {
     this.qrImageGenerator = qrImageGenerator;
     this.localResourceEncoder = localResourceEncoder;
     this.localIpResolver = localIpResolver;
     this.pollManager = pollManager;
+    this.trafficRecorder = trafficRecorder;
   }
 
 
@@ -62,14 +76,16 @@ public class PollController {
    * violation to the REST style, but since we want to support vote by QR scanning it has to be GET
    * (default HTTP method for browser resource access).
    *
-   * @param pollId as the unique identifier of the poll for which we want to register a vote
-   * @param option as the clients vote option submitted for this call
+   * @param pollId  as the unique identifier of the poll for which we want to register a vote
+   * @param option  as the clients vote option submitted for this call
+   * @param request as the http connection meta bundle, providing information on the sender
    * @return string confirming the successful registration of the received ballot
    */
   @GetMapping("/polls/{pollid}/options/{option}")
   public String registerVote(@PathVariable("pollid") String pollId,
-                             @PathVariable("option") String option) {
+                             @PathVariable("option") String option, HttpServletRequest request) {
 
+    trafficRecorder.recordVote(pollId, option, request.getRemoteAddr());
     pollManager.getPollByIdentifier(pollId).voteForOption(option);
     return "I registered your vote for \"" + option
         + "\". Thank you for your participation. You can leave this page now. Please don't refresh"
@@ -92,7 +108,9 @@ public class PollController {
     // only treat if request form local machine and poll id valid
     if (request.getRemoteAddr().equals("127.0.0.1")) {
       if (pollManager.isExistentPoll(pollId)) {
-        return pollManager.getPollByIdentifier(pollId).getVotes(option);
+        int votes = pollManager.getPollByIdentifier(pollId).getVotes(option);
+        trafficRecorder.recordRead(pollId, option, request.getRemoteAddr(), votes);
+        return votes;
       }
     }
 
@@ -124,33 +142,73 @@ public class PollController {
 
     // Create new poll based on information in request payload.
     String pollId = pollManager.addPoll(poll);
-    createPollQrCodes(pollId, poll);
+    long diskBytes;
+    try {
+      diskBytes = createPollQrCodes(pollId, poll);
+    } catch (IOException | WriterException | RuntimeException e) {
+      // Release the half created poll, so failed creations do not fill up the budget.
+      pollManager.discardPoll(pollId, poll);
+      throw e;
+    }
+    pollManager.updateDiskUsage(pollId, poll, diskBytes);
+    trafficRecorder.recordCreation(pollId, poll.getTopic(), poll.getOptions(),
+        request.getRemoteAddr());
     return pollId;
   }
 
+  /**
+   * REST endpoint to look up the memory and disk bytes occupied by all polls, compared to the
+   * configured budget. Only accessible from localhost.
+   *
+   * @param request as http servlet meta info object, providing information about client origin
+   * @return budget usage report, overall and per poll.
+   */
+  @GetMapping("/usage")
+  public ResponseEntity<Map<String, Object>> getUsage(HttpServletRequest request) {
+
+    // reject if this request comes from a foreign machine.
+    if (!request.getRemoteAddr().equals("127.0.0.1")) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    return ResponseEntity.ok(pollManager.getUsage());
+  }
+
   /**
    * Private helper method to generate the qrcodes for a poll option and store the qr files on
-   * disk.
+   * disk. If qrcodes are inlined, they are encoded as data URIs and cached at the poll manager
+   * instead, so nothing is written to disk.
    *
    * @param poll object for which qrcodes are required. No path information is required since all
    *             qrcode names consist of poll identifier+option in kebap notation.
+   * @return the total size of all qrcode files written, in bytes.
    * @throws IOException     lookup of qr target IP fails
    * @throws WriterException if writing of qrcode to disk fails
    */
-  private void createPollQrCodes(String pollId, Poll poll)
+  private long createPollQrCodes(String pollId, Poll poll)
       throws IOException, WriterException {
 
     // Create QR code for every option mentioned in poll
+    long diskBytes = 0;
+    Map<String, String> dataUris = new LinkedHashMap<>();
     for (String option : poll.getOptions()) {
 
       // convert option to kebab notation
-      String optionResource = Hyphenizer.hyphenize(AlphabetSanitizer.sanitize(option));
+      String optionResource = Slugifier.slugify(option);
 
-      // Generate QR code and store on disk
+      // Generate QR code and store in memory or on disk
       String resourceString = localResourceEncoder.buildResourceString(pollId, optionResource);
       BitMatrix qrMatrix = qrImageGenerator.encodeQr(resourceString);
-      String qrFileName = pollId + "-" + optionResource;
-      qrImageGenerator.exportQrToDisk(qrFileName, qrMatrix);
+      if (inlineQr) {
+        dataUris.put(optionResource, qrImageGenerator.exportQrToDataUri(qrMatrix));
+      } else {
+        String qrFileName = pollId + "-" + optionResource;
+        String qrFile = qrImageGenerator.exportQrToDisk(qrFileName, qrMatrix);
+        diskBytes += new File(qrFile).length();
+      }
+    }
+    if (inlineQr) {
+      pollManager.cacheQrImages(pollId, poll, dataUris);
     }
+    return diskBytes;
   }
 }
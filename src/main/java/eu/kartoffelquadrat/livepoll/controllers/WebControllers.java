@@ -3,10 +3,12 @@ package eu.kartoffelquadrat.livepoll.controllers;
 import eu.kartoffelquadrat.livepoll.Poll;
 import eu.kartoffelquadrat.livepoll.PollLauncher;
 import eu.kartoffelquadrat.livepoll.PollManager;
-import eu.kartoffelquadrat.livepoll.pollutils.AlphabetSanitizer;
-import eu.kartoffelquadrat.livepoll.pollutils.Hyphenizer;
+import eu.kartoffelquadrat.livepoll.pollutils.Slugifier;
+import eu.kartoffelquadrat.livepoll.qrgenerator.QrImageGenerator;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -64,36 +66,12 @@ public class WebControllers {
     if (!isCallFromLocalhost(request)) {
       return "denied";
     } else {
-      if (pollManager.isExistentPoll(pollid)) {
+      Poll poll = pollManager.getPollByIdentifier(pollid);
+      if (poll != null) {
 
         // Store information required to render in model, so that thymeleaf can insert it (server
         // sided)
-        model.addAttribute("bufferdir", PollLauncher.pollTmpDir);
-        model.addAttribute("pollid", pollid);
-
-        Poll poll = pollManager.getPollByIdentifier(pollid);
-        model.addAttribute("topic", poll.getTopic());
-
-        // fill available options depending on poll characteristics
-        model.addAttribute("firstoptiontext", poll.getOptions()[0]);
-        model.addAttribute("firstoptioncode",
-            Hyphenizer.hyphenize(AlphabetSanitizer.sanitize(poll.getOptions()[0])));
-        int lastOptionIndex = poll.getOptions().length - 1;
-        model.addAttribute("lastoptiontext", poll.getOptions()[lastOptionIndex]);
-        model.addAttribute("lastoptioncode",
-            Hyphenizer.hyphenize(AlphabetSanitizer.sanitize(poll.getOptions()[lastOptionIndex])));
-
-        if (poll.getOptions().length == 2) {
-          model.addAttribute("maybeoptiontext", "");
-          model.addAttribute("maybeoptioncode", "");
-        } else if (poll.getOptions().length == 3) {
-          model.addAttribute("maybeoptiontext", poll.getOptions()[1]);
-          model.addAttribute("maybeoptioncode",
-              Hyphenizer.hyphenize(AlphabetSanitizer.sanitize(poll.getOptions()[1])));
-        } else {
-          throw new RuntimeException("Only binary / tertiary polls supported for now.");
-        }
-
+        model.addAllAttributes(buildPollModel(pollid, poll));
         return "poll";
       } else {
         return "redirect:/";
@@ -101,6 +79,47 @@ public class WebControllers {
     }
   }
 
+  /**
+   * Builds all variables required to render the poll template for a poll. Also used by the startup
+   * warm-up, so the warm-up renders exactly what the poll page renders.
+   *
+   * @param pollid as the id of the poll to render.
+   * @param poll   as the poll to render.
+   * @return the template variables by name.
+   */
+  public Map<String, Object> buildPollModel(String pollid, Poll poll) {
+
+    Map<String, Object> model = new LinkedHashMap<>();
+    model.put("bufferdir", PollLauncher.pollTmpDir);
+    model.put("pollid", pollid);
+    model.put("topic", poll.getTopic());
+
+    // fill available options depending on poll characteristics
+    model.put("firstoptiontext", poll.getOptions()[0]);
+    String firstOptionCode = Slugifier.slugify(poll.getOptions()[0]);
+    model.put("firstoptioncode", firstOptionCode);
+    model.put("firstoptionqr", qrSource(pollid, firstOptionCode));
+    int lastOptionIndex = poll.getOptions().length - 1;
+    model.put("lastoptiontext", poll.getOptions()[lastOptionIndex]);
+    String lastOptionCode = Slugifier.slugify(poll.getOptions()[lastOptionIndex]);
+    model.put("lastoptioncode", lastOptionCode);
+    model.put("lastoptionqr", qrSource(pollid, lastOptionCode));
+
+    if (poll.getOptions().length == 2) {
+      model.put("maybeoptiontext", "");
+      model.put("maybeoptioncode", "");
+      model.put("maybeoptionqr", "");
+    } else if (poll.getOptions().length == 3) {
+      model.put("maybeoptiontext", poll.getOptions()[1]);
+      String maybeOptionCode = Slugifier.slugify(poll.getOptions()[1]);
+      model.put("maybeoptioncode", maybeOptionCode);
+      model.put("maybeoptionqr", qrSource(pollid, maybeOptionCode));
+    } else {
+      throw new RuntimeException("Only binary / tertiary polls supported for now.");
+    }
+    return model;
+  }
+
   /**
    * Helper method to access QR code png files stored on disk. Local references are blockedc by
    * browsers security policy so we need an HTTP tunnel.
@@ -126,12 +145,32 @@ public class WebControllers {
       return null;
     }
 
-    // Return the referenced QR code
+    // Return the referenced QR code, from memory if inlined
+    String dataUri = pollManager.getQrImage(pollid, option);
+    if (dataUri != null) {
+      return QrImageGenerator.decodeDataUri(dataUri);
+    }
     FileInputStream in = new FileInputStream(
         PollLauncher.pollTmpDir + '/' + pollid + "-" + option + ".png");
     return IOUtils.toByteArray(in);
   }
 
+  /**
+   * Helper method to determine the image source of an option's QR code. Inlined QR codes are
+   * embedded as data URI, all others are referenced by their HTTP tunnel endpoint.
+   *
+   * @param pollid     as the id of the poll.
+   * @param optionCode as the kebap notated option.
+   * @return string to be used as src attribute of the QR image.
+   */
+  private String qrSource(String pollid, String optionCode) {
+    String dataUri = pollManager.getQrImage(pollid, optionCode);
+    if (dataUri != null) {
+      return dataUri;
+    }
+    return "/polls/" + pollid + "/qr/" + optionCode;
+  }
+
   /**
    * Helper method to determine if a servlet connection was established from the same machine as the
    * server is running on.
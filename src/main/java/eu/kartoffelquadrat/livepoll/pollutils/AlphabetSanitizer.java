@@ -1,5 +1,7 @@
 package eu.kartoffelquadrat.livepoll.pollutils;
 
+import java.text.Normalizer;
+
 /**
  * Helper class to sanitize topic strings from any characters that might be incompatible with
  * filesystem or URL-encoding.
@@ -8,16 +10,109 @@ package eu.kartoffelquadrat.livepoll.pollutils;
  */
 public class AlphabetSanitizer {
 
+  // First and last character covered by the transliteration table (Latin-1 Supplement and Latin
+  // Extended-A).
+  private static final char FIRST_LATIN = 'À';
+  private static final char LAST_LATIN = 'ſ';
+
+  // ASCII replacement for every accented latin character, null if the character is stripped.
+  private static final String[] TRANSLITERATIONS = buildTransliterations();
+
   /**
-   * Takes an input string and strips it from all non alphanumeric or blank characters.
+   * Takes an input string and strips it from all non alphanumeric or blank characters. Accented
+   * latin characters are transliterated to their ASCII base letters (German umlauts and sharp s to
+   * their two-letter spelling) instead of being stripped.
    *
    * @param nonAlphanumericString as the input string to filter.
    * @return same as input string, but without any alphanumeric characters.
    */
   public static String sanitize(String nonAlphanumericString) {
-    // strip from any non alphanumeric character except whitespace
-    // see: https://stackoverflow.com/a/6053606
-    String result = nonAlphanumericString.replaceAll("[^a-zA-Z\\d\\s:]", "");
-    return result;
+
+    // strip from any non alphanumeric character except whitespace and colon
+    StringBuilder result = new StringBuilder(nonAlphanumericString.length());
+    for (int i = 0; i < nonAlphanumericString.length(); i++) {
+      char c = nonAlphanumericString.charAt(i);
+      if (isRetained(c) || isWhitespace(c)) {
+        result.append(c);
+      } else {
+        String transliteration = transliterate(c);
+        if (transliteration != null) {
+          result.append(transliteration);
+        }
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Tells whether a character is kept as is by the sanitizer, that is an ASCII letter, an ASCII
+   * digit or a colon.
+   *
+   * @param c as the character to inspect.
+   * @return true if the character is kept unchanged.
+   */
+  static boolean isRetained(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == ':';
+  }
+
+  /**
+   * Tells whether a character is whitespace in the sense of the regex class "\s", that is blank,
+   * tab, line feed, vertical tab, form feed or carriage return.
+   *
+   * @param c as the character to inspect.
+   * @return true if the character is ASCII whitespace.
+   */
+  static boolean isWhitespace(char c) {
+    return c == ' ' || (c >= '\t' && c <= '\r');
+  }
+
+  /**
+   * Looks up the ASCII replacement of an accented latin character.
+   *
+   * @param c as the character to transliterate.
+   * @return the ASCII letters replacing the character, or null if the character has no
+   *     replacement.
+   */
+  static String transliterate(char c) {
+    if (c < FIRST_LATIN || c > LAST_LATIN) {
+      return null;
+    }
+    return TRANSLITERATIONS[c - FIRST_LATIN];
+  }
+
+  /**
+   * Builds the transliteration table once. Characters that decompose into a single ASCII letter
+   * plus diacritics map to that letter, ligatures and letters without decomposition are listed
+   * explicitly.
+   *
+   * @return array with one ASCII replacement (or null) per character of the covered range.
+   */
+  private static String[] buildTransliterations() {
+
+    String[] table = new String[LAST_LATIN - FIRST_LATIN + 1];
+    for (char c = FIRST_LATIN; c <= LAST_LATIN; c++) {
+      String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+      char base = decomposed.charAt(0);
+      if ((base >= 'a' && base <= 'z') || (base >= 'A' && base <= 'Z')) {
+        table[c - FIRST_LATIN] = String.valueOf(base);
+      }
+    }
+
+    // German umlauts and sharp s use their conventional two-letter spelling
+    String[][] explicit = {
+        {"Ä", "Ae"}, {"Ö", "Oe"}, {"Ü", "Ue"},
+        {"ä", "ae"}, {"ö", "oe"}, {"ü", "ue"}, {"ß", "ss"},
+        {"Æ", "AE"}, {"æ", "ae"}, {"Œ", "OE"}, {"œ", "oe"},
+        {"Ĳ", "IJ"}, {"ĳ", "ij"}, {"Þ", "Th"}, {"þ", "th"},
+        {"Ð", "D"}, {"ð", "d"}, {"Đ", "D"}, {"đ", "d"},
+        {"Ø", "O"}, {"ø", "o"}, {"Ł", "L"}, {"ł", "l"},
+        {"Ŀ", "L"}, {"ŀ", "l"}, {"Ħ", "H"}, {"ħ", "h"},
+        {"Ŧ", "T"}, {"ŧ", "t"}, {"Ŋ", "N"}, {"ŋ", "n"},
+        {"ı", "i"}, {"ĸ", "k"}, {"ŉ", "n"}, {"ſ", "s"}
+    };
+    for (String[] entry : explicit) {
+      table[entry[0].charAt(0) - FIRST_LATIN] = entry[1];
+    }
+    return table;
   }
 }
@@ -22,10 +22,8 @@ public class DateAndTopicPollIdGenerator implements PollIdGenerator {
   @Override
   public String generatePollId(String theme) {
 
-    // TODO: Sanitize topic from all non ascii characters.
-
     String date = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
-    date += "-" + Hyphenizer.hyphenize(AlphabetSanitizer.sanitize(theme));
+    date += "-" + Slugifier.slugify(theme);
     return date;
   }
 }
@@ -0,0 +1,49 @@
+package eu.kartoffelquadrat.livepoll.pollutils;
+
+/**
+ * Builds the URL and file system friendly code of a topic or option string in a single pass. The
+ * result is identical to the former regex pipeline applied to the sanitized string, but no
+ * intermediate strings are built.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class Slugifier {
+
+  /**
+   * Converts a human readable string to its kebap notated code. Keeps ASCII letters (lowercased),
+   * digits and colons, transliterates accented latin characters, turns every run of whitespaces
+   * between visible characters into one hyphen and strips everything else.
+   *
+   * @param humanReadableString any string in natural language.
+   * @return the kebap notated code of the human readable string.
+   */
+  public static String slugify(String humanReadableString) {
+
+    StringBuilder slug = new StringBuilder(humanReadableString.length());
+    boolean pendingHyphen = false;
+    for (int i = 0; i < humanReadableString.length(); i++) {
+      char c = humanReadableString.charAt(i);
+      if (AlphabetSanitizer.isRetained(c)) {
+        if (pendingHyphen) {
+          slug.append('-');
+          pendingHyphen = false;
+        }
+        slug.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+      } else if (AlphabetSanitizer.isWhitespace(c)) {
+        pendingHyphen = slug.length() > 0;
+      } else {
+        String transliteration = AlphabetSanitizer.transliterate(c);
+        if (transliteration != null) {
+          if (pendingHyphen) {
+            slug.append('-');
+            pendingHyphen = false;
+          }
+          for (int j = 0; j < transliteration.length(); j++) {
+            slug.append(Character.toLowerCase(transliteration.charAt(j)));
+          }
+        }
+      }
+    }
+    return slug.toString();
+  }
+}
@@ -6,8 +6,10 @@ import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import eu.kartoffelquadrat.livepoll.PollLauncher;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.Base64;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -18,6 +20,7 @@ import org.springframework.stereotype.Component;
 @Component
 public class QrImageGenerator {
 
+  private static final String DATA_URI_PREFIX = "data:image/png;base64,";
 
   @Value("${qrcode.pixel.dimensions}")
   private int pixelSize = 128;
@@ -53,4 +56,29 @@ public class QrImageGenerator {
     System.out.println(qrFile.toString());
     return qrFile.toString();
   }
+
+  /**
+   * Exports a provided QR code as PNG into memory and encodes it as data URI, so it can be embedded
+   * into the poll page without any further request or file access.
+   *
+   * @param qr as the BitMatrix encoding the qrcode as object.
+   * @return the data URI string of the base64 encoded PNG.
+   * @throws IOException in case the PNG encoding fails.
+   */
+  public String exportQrToDataUri(BitMatrix qr) throws IOException {
+
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    MatrixToImageWriter.writeToStream(qr, "PNG", png);
+    return DATA_URI_PREFIX + Base64.getEncoder().encodeToString(png.toByteArray());
+  }
+
+  /**
+   * Decodes the PNG bytes of a QR code data URI, as created by exportQrToDataUri.
+   *
+   * @param dataUri as the data URI string to decode.
+   * @return the PNG bytes of the QR code.
+   */
+  public static byte[] decodeDataUri(String dataUri) {
+    return Base64.getDecoder().decode(dataUri.substring(DATA_URI_PREFIX.length()));
+  }
 }
@@ -0,0 +1,304 @@
+package eu.kartoffelquadrat.livepoll.store;
+
+import eu.kartoffelquadrat.livepoll.Poll;
+import eu.kartoffelquadrat.livepoll.pollutils.Slugifier;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Poll store that additionally persists all polls and their tallies to an embedded H2 database in
+ * file mode, so results outlive the service and can be queried with SQL. Live polls are still
+ * served from heap. Votes never touch the database: a background thread periodically compares the
+ * vote counters to the last persisted values and writes the coalesced deltas in one batch.
+ *
+ * <p>Schema: POLLS(NR, POLL_ID, TOPIC, CREATED) and OPTIONS(POLL_NR, POSITION, TEXT, CODE, VOTES).
+ * Every stored poll is archived under a new NR, so polls removed from the live polls (e.g. evicted)
+ * stay in the database, even if their poll id is reused later, e.g. for the same topic on the same
+ * day or after a restart.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Component
+public class DatabasePollStore implements PollStore {
+
+  private final InMemoryPollStore livePolls = new InMemoryPollStore();
+
+  // Persistence state of the live polls, by poll id.
+  private final Map<String, TrackedPoll> liveTrackedPolls = new HashMap<>();
+
+  // Live polls, plus removed or replaced polls until their final tally is persisted. Shared with
+  // the flush thread.
+  private final Set<TrackedPoll> trackedPolls = ConcurrentHashMap.newKeySet();
+
+  private final String url;
+
+  private final long flushMillis;
+
+  private Connection connection;
+
+  private ScheduledExecutorService flusher;
+
+  /**
+   * Persistence state of a single poll, shared with the flush thread.
+   */
+  private static class TrackedPoll {
+
+    private final String pollId;
+    private final Poll poll;
+    private final Timestamp created;
+    private final int[] persistedVotes;
+    // Archive number of the poll, or 0 until the poll is persisted
+    private long nr;
+    private volatile boolean removed;
+    // Set by the first committed flush after the removal, only accessed by flushes
+    private boolean removalFlushed;
+
+    private TrackedPoll(String pollId, Poll poll) {
+      this.pollId = pollId;
+      this.poll = poll;
+      this.created = new Timestamp(System.currentTimeMillis());
+      this.persistedVotes = new int[poll.getOptions().length];
+    }
+  }
+
+  /**
+   * Store constructor. Does not touch the database until the store is opened.
+   *
+   * @param url         as the JDBC url of the database. H2 urls need DB_CLOSE_ON_EXIT=FALSE, so the
+   *                    final flush on shutdown still finds the database open.
+   * @param flushMillis as the interval in which vote deltas are written to the database.
+   */
+  public DatabasePollStore(@Value("${poll.store.database.url:"
+      + "jdbc:h2:file:~/.livepoll/polls;DB_CLOSE_ON_EXIT=FALSE}") String url,
+                           @Value("${poll.store.database.flush.millis:250}") long flushMillis) {
+    this.url = url;
+    this.flushMillis = flushMillis;
+  }
+
+  /**
+   * Connects to the database, creates the schema if needed and starts the flush thread.
+   *
+   * @throws SQLException in case the database can not be opened.
+   */
+  public synchronized void open() throws SQLException {
+
+    connection = DriverManager.getConnection(url);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS POLLS (NR BIGINT GENERATED BY DEFAULT AS "
+          + "IDENTITY PRIMARY KEY, POLL_ID VARCHAR NOT NULL, TOPIC VARCHAR NOT NULL, "
+          + "CREATED TIMESTAMP NOT NULL)");
+      statement.execute("CREATE TABLE IF NOT EXISTS OPTIONS (POLL_NR BIGINT NOT NULL "
+          + "REFERENCES POLLS (NR), POSITION INT NOT NULL, TEXT VARCHAR NOT NULL, "
+          + "CODE VARCHAR NOT NULL, VOTES INT NOT NULL, PRIMARY KEY (POLL_NR, POSITION))");
+    }
+    connection.setAutoCommit(false);
+
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "poll-store-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis,
+        TimeUnit.MILLISECONDS);
+    System.out.println("Persisting polls to " + url);
+  }
+
+  @Override
+  public void put(String pollId, Poll poll) {
+    remove(pollId);
+    livePolls.put(pollId, poll);
+    TrackedPoll trackedPoll = new TrackedPoll(pollId, poll);
+    liveTrackedPolls.put(pollId, trackedPoll);
+    trackedPolls.add(trackedPoll);
+  }
+
+  @Override
+  public Poll get(String pollId) {
+    return livePolls.get(pollId);
+  }
+
+  @Override
+  public boolean contains(String pollId) {
+    return livePolls.contains(pollId);
+  }
+
+  @Override
+  public void remove(String pollId) {
+    livePolls.remove(pollId);
+
+    // Keep tracking until the final tally is flushed
+    TrackedPoll trackedPoll = liveTrackedPolls.remove(pollId);
+    if (trackedPoll != null) {
+      trackedPoll.removed = true;
+    }
+  }
+
+  @Override
+  public String getOldestPollId() {
+    return livePolls.getOldestPollId();
+  }
+
+  @Override
+  public int size() {
+    return livePolls.size();
+  }
+
+  /**
+   * Writes all new polls and all vote deltas since the last flush to the database, in a single
+   * transaction.
+   *
+   * @throws SQLException in case writing to the database failed. Nothing is marked as persisted
+   *                      then, so the next flush retries.
+   */
+  synchronized void flush() throws SQLException {
+
+    if (connection == null) {
+      return;
+    }
+
+    try (PreparedStatement insertPoll = connection.prepareStatement(
+        "INSERT INTO POLLS (POLL_ID, TOPIC, CREATED) VALUES (?, ?, ?)",
+        Statement.RETURN_GENERATED_KEYS);
+         PreparedStatement insertOption = connection.prepareStatement(
+             "INSERT INTO OPTIONS (POLL_NR, POSITION, TEXT, CODE, VOTES) VALUES (?, ?, ?, ?, ?)");
+         PreparedStatement addVotes = connection.prepareStatement(
+             "UPDATE OPTIONS SET VOTES = VOTES + ? WHERE POLL_NR = ? AND POSITION = ?")) {
+
+      // Snapshot of the counters and archive numbers, applied only once the transaction is
+      // committed
+      Map<TrackedPoll, int[]> snapshots = new HashMap<>();
+      Map<TrackedPoll, Long> archived = new HashMap<>();
+      List<TrackedPoll> removals = new LinkedList<>();
+      for (TrackedPoll trackedPoll : trackedPolls) {
+
+        // A vote request may still hold a removed poll and count its vote after this snapshot, so
+        // a removed poll is only dropped by the flush after the first one that saw the removal.
+        if (trackedPoll.removed) {
+          removals.add(trackedPoll);
+        }
+
+        int[] votes = new int[trackedPoll.persistedVotes.length];
+        for (int i = 0; i < votes.length; i++) {
+          votes[i] = trackedPoll.poll.getVotes(i);
+        }
+        snapshots.put(trackedPoll, votes);
+
+        // New polls are archived with their current tally, known polls only receive the deltas
+        if (trackedPoll.nr == 0) {
+          long nr = archive(insertPoll, insertOption, trackedPoll, votes);
+          archived.put(trackedPoll, nr);
+        } else {
+          for (int i = 0; i < votes.length; i++) {
+            int delta = votes[i] - trackedPoll.persistedVotes[i];
+            if (delta != 0) {
+              addVotes.setInt(1, delta);
+              addVotes.setLong(2, trackedPoll.nr);
+              addVotes.setInt(3, i);
+              addVotes.addBatch();
+            }
+          }
+        }
+      }
+
+      insertOption.executeBatch();
+      addVotes.executeBatch();
+      connection.commit();
+
+      for (Map.Entry<TrackedPoll, Long> nr : archived.entrySet()) {
+        nr.getKey().nr = nr.getValue();
+      }
+      for (Map.Entry<TrackedPoll, int[]> snapshot : snapshots.entrySet()) {
+        TrackedPoll trackedPoll = snapshot.getKey();
+        System.arraycopy(snapshot.getValue(), 0, trackedPoll.persistedVotes, 0,
+            trackedPoll.persistedVotes.length);
+      }
+      for (TrackedPoll trackedPoll : removals) {
+        if (trackedPoll.removalFlushed) {
+          trackedPolls.remove(trackedPoll);
+        }
+        trackedPoll.removalFlushed = true;
+      }
+    } catch (SQLException e) {
+      connection.rollback();
+      throw e;
+    }
+  }
+
+  /**
+   * Inserts a new archive entry for a poll and queues the insertion of its options.
+   *
+   * @param insertPoll   as the statement inserting into POLLS.
+   * @param insertOption as the batched statement inserting into OPTIONS.
+   * @param trackedPoll  as the poll to archive.
+   * @param votes        as the tally to archive the options with.
+   * @return the archive number assigned to the poll.
+   * @throws SQLException in case writing to the database failed.
+   */
+  private static long archive(PreparedStatement insertPoll, PreparedStatement insertOption,
+                              TrackedPoll trackedPoll, int[] votes) throws SQLException {
+
+    insertPoll.setString(1, trackedPoll.pollId);
+    insertPoll.setString(2, trackedPoll.poll.getTopic());
+    insertPoll.setTimestamp(3, trackedPoll.created);
+    insertPoll.executeUpdate();
+    long nr;
+    try (ResultSet keys = insertPoll.getGeneratedKeys()) {
+      keys.next();
+      nr = keys.getLong(1);
+    }
+
+    String[] options = trackedPoll.poll.getOptions();
+    for (int i = 0; i < options.length; i++) {
+      insertOption.setLong(1, nr);
+      insertOption.setInt(2, i);
+      insertOption.setString(3, options[i]);
+      insertOption.setString(4, Slugifier.slugify(options[i]));
+      insertOption.setInt(5, votes[i]);
+      insertOption.addBatch();
+    }
+    return nr;
+  }
+
+  /**
+   * Stops the flush thread, writes the final tallies and closes the database.
+   *
+   * @throws SQLException in case the final flush or closing the database failed.
+   */
+  @PreDestroy
+  public synchronized void close() throws SQLException {
+
+    if (connection == null) {
+      return;
+    }
+    flusher.shutdown();
+    flush();
+    connection.close();
+    connection = null;
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (SQLException e) {
+      // Persistence must never break the live poll, the next flush retries.
+      System.out.println("Failed to persist polls: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package eu.kartoffelquadrat.livepoll.store;
+
+import eu.kartoffelquadrat.livepoll.Poll;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default poll store. Keeps all polls in heap only, so they are lost on shutdown.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Component
+public class InMemoryPollStore implements PollStore {
+
+  // Concurrent, so lookups on the vote path need no lock
+  private final Map<String, Poll> indexedPolls = new ConcurrentHashMap<>();
+
+  // Poll ids in insertion order, only accessed by the serialized modifying calls
+  private final Set<String> pollIdsByAge = new LinkedHashSet<>();
+
+  @Override
+  public void put(String pollId, Poll poll) {
+    // remove first, so a replaced poll counts as the newest one
+    pollIdsByAge.remove(pollId);
+    pollIdsByAge.add(pollId);
+    indexedPolls.put(pollId, poll);
+  }
+
+  @Override
+  public Poll get(String pollId) {
+    return indexedPolls.get(pollId);
+  }
+
+  @Override
+  public boolean contains(String pollId) {
+    return indexedPolls.containsKey(pollId);
+  }
+
+  @Override
+  public void remove(String pollId) {
+    indexedPolls.remove(pollId);
+    pollIdsByAge.remove(pollId);
+  }
+
+  @Override
+  public String getOldestPollId() {
+    if (pollIdsByAge.isEmpty()) {
+      return null;
+    }
+    return pollIdsByAge.iterator().next();
+  }
+
+  @Override
+  public int size() {
+    return pollIdsByAge.size();
+  }
+}
@@ -0,0 +1,59 @@
+package eu.kartoffelquadrat.livepoll.store;
+
+import eu.kartoffelquadrat.livepoll.Poll;
+
+/**
+ * Storage backend for the polls of the poll manager. Implementations must keep all live polls
+ * accessible without I/O or locking, since lookups are on the vote path: get and contains are
+ * called concurrently, also while a poll is stored or removed. All other calls are serialized by
+ * the poll manager.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public interface PollStore {
+
+  /**
+   * Stores a poll. Replaces any poll stored under the same id.
+   *
+   * @param pollId as the unique id of the poll.
+   * @param poll   as the poll to store.
+   */
+  void put(String pollId, Poll poll);
+
+  /**
+   * Looks up a live poll by its id.
+   *
+   * @param pollId as the id to look up.
+   * @return the poll stored under the id, or null if there is none.
+   */
+  Poll get(String pollId);
+
+  /**
+   * Looks up if a live poll is stored under the given id.
+   *
+   * @param pollId as the id to look up.
+   * @return true if a poll is stored under the id, false if not.
+   */
+  boolean contains(String pollId);
+
+  /**
+   * Removes a poll from the live polls.
+   *
+   * @param pollId as the id of the poll to remove.
+   */
+  void remove(String pollId);
+
+  /**
+   * Looks up the poll that was stored first, among all live polls.
+   *
+   * @return the id of the oldest live poll, or null if there is none.
+   */
+  String getOldestPollId();
+
+  /**
+   * Counts the live polls.
+   *
+   * @return the amount of live polls.
+   */
+  int size();
+}
@@ -0,0 +1,119 @@
+package eu.kartoffelquadrat.livepoll.traffic;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes traffic records from the compact binary trace format written by the TrafficWriter.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class TrafficReader implements Closeable {
+
+  private final DataInputStream in;
+  private final List<String> strings = new ArrayList<>();
+  private long previousNanos;
+
+  /**
+   * Reader constructor. Reads and validates the trace header right away.
+   *
+   * @param in as the stream to read the trace from. Should be buffered.
+   * @throws IOException in case the stream does not start with a supported trace header.
+   */
+  public TrafficReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(in);
+    if (this.in.readInt() != TrafficWriter.MAGIC) {
+      throw new IOException("Not a LivePoll traffic trace.");
+    }
+    int version = this.in.readUnsignedByte();
+    if (version != TrafficWriter.VERSION) {
+      throw new IOException("Unsupported traffic trace version: " + version);
+    }
+  }
+
+  /**
+   * Reads the next record of the trace.
+   *
+   * @return the next record, or null if the end of the trace is reached.
+   * @throws IOException in case the trace is corrupt or reading failed.
+   */
+  public TrafficRecord read() throws IOException {
+
+    int typeByte = in.read();
+    if (typeByte < 0) {
+      return null;
+    }
+    if (typeByte >= TrafficRecord.Type.values().length) {
+      throw new IOException("Unknown record type " + typeByte + " in traffic trace.");
+    }
+    TrafficRecord.Type type = TrafficRecord.Type.values()[typeByte];
+    previousNanos += readVarLong();
+    String pollId = readString();
+    String text = readString();
+    String client = readString();
+
+    String[] options = new String[0];
+    int value = 0;
+    if (type == TrafficRecord.Type.CREATE) {
+      options = new String[(int) readVarLong()];
+      for (int i = 0; i < options.length; i++) {
+        options[i] = readString();
+      }
+    } else if (type == TrafficRecord.Type.READ) {
+      int zigzag = (int) readVarLong();
+      value = (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+    return new TrafficRecord(type, previousNanos, pollId, text, client, options, value);
+  }
+
+  /**
+   * Reads all remaining records of the trace.
+   *
+   * @return list of all records in recording order.
+   * @throws IOException in case the trace is corrupt or reading failed.
+   */
+  public List<TrafficRecord> readAll() throws IOException {
+    List<TrafficRecord> records = new ArrayList<>();
+    TrafficRecord trafficRecord = read();
+    while (trafficRecord != null) {
+      records.add(trafficRecord);
+      trafficRecord = read();
+    }
+    return records;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private String readString() throws IOException {
+    int reference = (int) readVarLong();
+    if (reference == 0) {
+      String string = in.readUTF();
+      strings.add(string);
+      return string;
+    }
+    return strings.get(reference - 1);
+  }
+
+  private long readVarLong() throws IOException {
+    long value = 0;
+    int shift = 0;
+    int next;
+    do {
+      next = in.read();
+      if (next < 0) {
+        throw new EOFException("Truncated traffic record.");
+      }
+      value |= (long) (next & 0x7F) << shift;
+      shift += 7;
+    } while ((next & 0x80) != 0);
+    return value;
+  }
+}
@@ -0,0 +1,76 @@
+package eu.kartoffelquadrat.livepoll.traffic;
+
+/**
+ * Immutable representation of a single recorded request: a poll creation, a vote or a read of the
+ * current vote amount of an option.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class TrafficRecord {
+
+  /**
+   * Kinds of requests that are recorded. The ordinal is the type byte in the binary format, so new
+   * constants must only ever be appended.
+   */
+  public enum Type {
+    CREATE, VOTE, READ
+  }
+
+  private final Type type;
+  private final long nanos;
+  private final String pollId;
+  private final String text;
+  private final String client;
+  private final String[] options;
+  private final int value;
+
+  /**
+   * Record constructor.
+   *
+   * @param type    as the kind of recorded request.
+   * @param nanos   as the nanosecond timestamp of the request, relative to the recording start.
+   * @param pollId  as the id of the poll the request targets.
+   * @param text    as the poll topic for creations, the option code for votes and reads.
+   * @param client  as the remote address of the client that sent the request.
+   * @param options as the poll options for creations, empty array otherwise.
+   * @param value   as the vote amount returned by a read, 0 otherwise.
+   */
+  public TrafficRecord(Type type, long nanos, String pollId, String text, String client,
+                       String[] options, int value) {
+    this.type = type;
+    this.nanos = nanos;
+    this.pollId = pollId;
+    this.text = text;
+    this.client = client;
+    this.options = options;
+    this.value = value;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public long getNanos() {
+    return nanos;
+  }
+
+  public String getPollId() {
+    return pollId;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public String getClient() {
+    return client;
+  }
+
+  public String[] getOptions() {
+    return options;
+  }
+
+  public int getValue() {
+    return value;
+  }
+}
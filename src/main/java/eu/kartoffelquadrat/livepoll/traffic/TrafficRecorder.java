@@ -0,0 +1,233 @@
+package eu.kartoffelquadrat.livepoll.traffic;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional recorder for all poll creations, votes and outcome reads. Records are appended to a
+ * binary trace file, which can later be re-driven against a fresh instance with the
+ * TrafficReplayer. Recording is enabled by setting the "traffic.record.file" property to a file
+ * path, and disabled if the property is empty. An existing trace file is never overwritten, the new
+ * trace then gets a timestamp suffix.
+ *
+ * <p>Request threads only enqueue records. A single writer thread encodes them and flushes the
+ * trace file at least every "traffic.record.flush.millis", so at most that much of the trace is
+ * lost if the process is killed. The queue holds at most "traffic.record.queue.capacity" records,
+ * further records are dropped and reported, rather than letting a stalled disk exhaust the heap.
+ *
+ * @author Maximilian Schiedermeier
+ */
+@Component
+public class TrafficRecorder {
+
+  private static final String[] NO_OPTIONS = new String[0];
+
+  private final BlockingQueue<TrafficRecord> queue;
+
+  private final AtomicLong droppedRecords = new AtomicLong();
+
+  private final File traceFile;
+
+  private final TrafficWriter writer;
+
+  private final Thread writerThread;
+
+  private final long flushMillis;
+
+  private final long startNanos;
+
+  private volatile boolean closed;
+
+  /**
+   * Recorder constructor. Creates the trace file and starts the writer thread, if recording is
+   * enabled.
+   *
+   * @param recordFile    as the path of the trace file. Empty string if recording is disabled.
+   * @param flushMillis   as the maximum interval in which recorded traffic is flushed to the file.
+   * @param queueCapacity as the maximum amount of records waiting for the writer thread.
+   * @throws IOException in case the trace file could not be created.
+   */
+  public TrafficRecorder(@Value("${traffic.record.file:}") String recordFile,
+                         @Value("${traffic.record.flush.millis:200}") long flushMillis,
+                         @Value("${traffic.record.queue.capacity:65536}") int queueCapacity)
+      throws IOException {
+
+    startNanos = System.nanoTime();
+    this.flushMillis = flushMillis;
+    queue = new LinkedBlockingQueue<>(queueCapacity);
+    if (recordFile.isEmpty()) {
+      traceFile = null;
+      writer = null;
+      writerThread = null;
+    } else {
+      traceFile = unusedTraceFile(new File(recordFile));
+      writer = new TrafficWriter(new BufferedOutputStream(
+          Files.newOutputStream(traceFile.toPath(), StandardOpenOption.CREATE_NEW)));
+      writerThread = new Thread(this::writeRecords, "traffic-recorder");
+      writerThread.setDaemon(true);
+      writerThread.start();
+      System.out.println("Recording traffic to " + traceFile);
+    }
+  }
+
+  /**
+   * Helper method to protect earlier recordings. Adds a timestamp suffix to the trace file name, if
+   * the file already exists.
+   *
+   * @param recordFile as the configured trace file.
+   * @return the configured trace file, or a timestamped sibling if it already exists.
+   */
+  private static File unusedTraceFile(File recordFile) {
+
+    if (!recordFile.exists()) {
+      return recordFile;
+    }
+    String name = recordFile.getName();
+    int extension = name.lastIndexOf('.') > 0 ? name.lastIndexOf('.') : name.length();
+    String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+    return new File(recordFile.getAbsoluteFile().getParentFile(),
+        name.substring(0, extension) + "-" + timestamp + name.substring(extension));
+  }
+
+  /**
+   * Getter for the file the trace is written to.
+   *
+   * @return the trace file, or null if recording is disabled.
+   */
+  public File getTraceFile() {
+    return traceFile;
+  }
+
+  /**
+   * Getter for the amount of records dropped because the writer thread could not keep up.
+   *
+   * @return the amount of dropped records since recording started.
+   */
+  public long getDroppedRecords() {
+    return droppedRecords.get();
+  }
+
+  /**
+   * Records the creation of a poll.
+   *
+   * @param pollId  as the id assigned to the new poll.
+   * @param topic   as the topic of the new poll.
+   * @param options as the human readable options of the new poll.
+   * @param client  as the remote address of the client that created the poll.
+   */
+  public void recordCreation(String pollId, String topic, String[] options, String client) {
+    record(TrafficRecord.Type.CREATE, pollId, topic, client, options, 0);
+  }
+
+  /**
+   * Records a vote.
+   *
+   * @param pollId as the id of the poll voted on.
+   * @param option as the option code voted for.
+   * @param client as the remote address of the voting client.
+   */
+  public void recordVote(String pollId, String option, String client) {
+    record(TrafficRecord.Type.VOTE, pollId, option, client, NO_OPTIONS, 0);
+  }
+
+  /**
+   * Records a read of the current vote amount of an option.
+   *
+   * @param pollId as the id of the poll read.
+   * @param option as the option code read.
+   * @param client as the remote address of the reading client.
+   * @param value  as the vote amount returned to the client.
+   */
+  public void recordRead(String pollId, String option, String client, int value) {
+    record(TrafficRecord.Type.READ, pollId, option, client, NO_OPTIONS, value);
+  }
+
+  /**
+   * Writes all queued records, then flushes and closes the trace file on shutdown.
+   *
+   * @throws IOException in case the remaining records could not be written.
+   */
+  @PreDestroy
+  public void close() throws IOException {
+    if (writer == null || closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    writer.close();
+    if (droppedRecords.get() > 0) {
+      System.out.println("Traffic trace is incomplete, dropped " + droppedRecords.get()
+          + " records.");
+    }
+  }
+
+  private void record(TrafficRecord.Type type, String pollId, String text, String client,
+                      String[] options, int value) {
+
+    if (writer == null || closed) {
+      return;
+    }
+    if (!queue.offer(new TrafficRecord(type, System.nanoTime() - startNanos, pollId, text, client,
+        options, value))) {
+      droppedRecords.incrementAndGet();
+    }
+  }
+
+  /**
+   * Writer thread loop. Encodes queued records and flushes whenever the queue runs empty, or at the
+   * latest after the flush interval.
+   */
+  private void writeRecords() {
+
+    long previousNanos = 0;
+    long reportedDrops = 0;
+    long lastFlush = System.nanoTime();
+    while (!closed || !queue.isEmpty()) {
+      try {
+        TrafficRecord trafficRecord = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+        if (trafficRecord != null) {
+          // Concurrent requests may enqueue slightly out of order, timestamps must ascend.
+          if (trafficRecord.getNanos() < previousNanos) {
+            trafficRecord = new TrafficRecord(trafficRecord.getType(), previousNanos,
+                trafficRecord.getPollId(), trafficRecord.getText(), trafficRecord.getClient(),
+                trafficRecord.getOptions(), trafficRecord.getValue());
+          }
+          previousNanos = trafficRecord.getNanos();
+          writer.write(trafficRecord);
+        }
+        if (queue.isEmpty()
+            || System.nanoTime() - lastFlush >= TimeUnit.MILLISECONDS.toNanos(flushMillis)) {
+          writer.flush();
+          lastFlush = System.nanoTime();
+          long drops = droppedRecords.get();
+          if (drops > reportedDrops) {
+            System.out.println("Traffic recorder can not keep up, dropped " + drops
+                + " records so far.");
+            reportedDrops = drops;
+          }
+        }
+      } catch (IOException e) {
+        // Recording must never break vote registration.
+        System.out.println("Failed to record traffic: " + e.getMessage());
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package eu.kartoffelquadrat.livepoll.traffic;
+
+import eu.kartoffelquadrat.livepoll.pollutils.Slugifier;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Command line tool that re-drives a recorded traffic trace against a fresh LivePoll instance and
+ * compares the final tallies. Polls are re-created first, so the recorded poll ids are mapped to
+ * the ids assigned by the target instance. Votes and reads are sent asynchronously, so bursts stay
+ * bursts. Must run on the same machine as the target instance, since poll creation and outcome
+ * reads are only accepted from localhost.
+ *
+ * <p>Usage: TrafficReplayer trace-file [base-url] [speed], where speed is either a factor (1 for
+ * the original pace, N for N times faster) or "max" to send all requests without waiting.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class TrafficReplayer {
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private final String baseUrl;
+
+  // Recorded poll id to id assigned by the target instance
+  private final Map<String, String> pollIds = new LinkedHashMap<>();
+
+  // Recorded poll id to option codes and the amount of votes recorded for each of them
+  private final Map<String, Map<String, Integer>> expectedTallies = new LinkedHashMap<>();
+
+  // Recorded poll id to option codes and the last vote amount a client read for each of them
+  private final Map<String, Map<String, Integer>> lastReads = new LinkedHashMap<>();
+
+  private final List<CompletableFuture<HttpResponse<String>>> pending = new LinkedList<>();
+
+  private int skipped;
+
+  /**
+   * Replayer constructor.
+   *
+   * @param baseUrl as the base url of the target instance, e.g. http://127.0.0.1:8361
+   */
+  public TrafficReplayer(String baseUrl) {
+    this.baseUrl = baseUrl;
+  }
+
+  /**
+   * Entry point of the replay tool.
+   *
+   * @param args trace file, optional base url and optional speed.
+   * @throws IOException          in case the trace can not be read or the target is unreachable.
+   * @throws InterruptedException in case the replay is interrupted.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+
+    if (args.length < 1) {
+      System.out.println("Usage: TrafficReplayer trace-file [base-url] [speed|max]");
+      System.exit(2);
+    }
+    String baseUrl = args.length > 1 ? args[1] : "http://127.0.0.1:8361";
+    double speed = args.length > 2 && !args[2].equals("max")
+        ? Double.parseDouble(args[2]) : Double.POSITIVE_INFINITY;
+
+    List<TrafficRecord> records;
+    try (TrafficReader reader = new TrafficReader(
+        new BufferedInputStream(new FileInputStream(args[0])))) {
+      records = reader.readAll();
+    }
+
+    TrafficReplayer replayer = new TrafficReplayer(baseUrl);
+    long start = System.nanoTime();
+    replayer.replay(records, speed);
+    System.out.println("Replayed " + records.size() + " records in "
+        + (System.nanoTime() - start) / 1000000 + " ms.");
+    System.exit(replayer.compareTallies() == 0 ? 0 : 1);
+  }
+
+  /**
+   * Sends all records to the target instance, paced by their recorded timestamps.
+   *
+   * @param records as the records to replay, in recording order.
+   * @param speed   as the replay speed factor. Infinity to send without waiting.
+   * @throws IOException          in case a poll could not be created on the target instance.
+   * @throws InterruptedException in case the replay is interrupted.
+   */
+  public void replay(List<TrafficRecord> records, double speed)
+      throws IOException, InterruptedException {
+
+    long replayStart = System.nanoTime();
+    for (TrafficRecord trafficRecord : records) {
+
+      // Wait until the scaled recording time of this record is reached
+      if (!Double.isInfinite(speed)) {
+        long due = replayStart + (long) (trafficRecord.getNanos() / speed);
+        long delay = due - System.nanoTime();
+        while (delay > 0) {
+          LockSupport.parkNanos(delay);
+          delay = due - System.nanoTime();
+        }
+      }
+
+      String pollId = pollIds.get(trafficRecord.getPollId());
+      if (trafficRecord.getType() == TrafficRecord.Type.CREATE) {
+        createPoll(trafficRecord);
+      } else if (pollId == null
+          || !expectedTallies.get(trafficRecord.getPollId()).containsKey(trafficRecord.getText())) {
+        // Poll was created before the recording started, or option does not exist.
+        skipped++;
+      } else if (trafficRecord.getType() == TrafficRecord.Type.VOTE) {
+        expectedTallies.get(trafficRecord.getPollId())
+            .merge(trafficRecord.getText(), 1, Integer::sum);
+        send("/polls/" + pollId + "/options/" + trafficRecord.getText());
+      } else {
+        lastReads.get(trafficRecord.getPollId())
+            .put(trafficRecord.getText(), trafficRecord.getValue());
+        send("/polls/" + pollId + "/outcome/" + trafficRecord.getText());
+      }
+    }
+
+    // Wait for all votes and reads in flight
+    CompletableFuture.allOf(pending.toArray(CompletableFuture<?>[]::new)).join();
+  }
+
+  /**
+   * Reads the final tallies from the target instance and prints them next to the tallies expected
+   * from the trace, and the last tallies a client read during the recording.
+   *
+   * @return the amount of options whose tally differs from the expected tally.
+   * @throws IOException          in case the target instance is unreachable.
+   * @throws InterruptedException in case the comparison is interrupted.
+   */
+  public int compareTallies() throws IOException, InterruptedException {
+
+    int mismatches = 0;
+    for (Map.Entry<String, Map<String, Integer>> poll : expectedTallies.entrySet()) {
+      System.out.println(poll.getKey() + " -> " + pollIds.get(poll.getKey()));
+      for (Map.Entry<String, Integer> option : poll.getValue().entrySet()) {
+        int actual = Integer.parseInt(get("/polls/" + pollIds.get(poll.getKey()) + "/outcome/"
+            + option.getKey()).trim());
+        Integer lastRead = lastReads.get(poll.getKey()).get(option.getKey());
+        boolean match = actual == option.getValue();
+        if (!match) {
+          mismatches++;
+        }
+        System.out.println("  " + option.getKey() + ": expected " + option.getValue()
+            + ", replayed " + actual + ", last read during recording "
+            + (lastRead == null ? "-" : lastRead) + (match ? "" : "  MISMATCH"));
+      }
+    }
+    if (skipped > 0) {
+      System.out.println("Skipped " + skipped + " records of unknown polls or options.");
+    }
+    return mismatches;
+  }
+
+  /**
+   * Getter for the amount of records that could not be replayed, because they target polls
+   * created before the recording started or options that do not exist.
+   *
+   * @return the amount of skipped records.
+   */
+  public int getSkipped() {
+    return skipped;
+  }
+
+  private void createPoll(TrafficRecord trafficRecord) throws IOException, InterruptedException {
+
+    StringBuilder json = new StringBuilder("{\"topic\":").append(quote(trafficRecord.getText()))
+        .append(",\"options\":[");
+    Map<String, Integer> tally = new LinkedHashMap<>();
+    for (int i = 0; i < trafficRecord.getOptions().length; i++) {
+      json.append(i == 0 ? "" : ",").append(quote(trafficRecord.getOptions()[i]));
+      tally.put(Slugifier.slugify(trafficRecord.getOptions()[i]), 0);
+    }
+    json.append("]}");
+
+    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/polls"))
+        .header("Content-Type", "application/json; charset=utf-8")
+        .POST(HttpRequest.BodyPublishers.ofString(json.toString())).build();
+    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200) {
+      throw new IOException("Target instance refused to create poll \"" + trafficRecord.getText()
+          + "\": HTTP " + response.statusCode());
+    }
+    String pollId = response.body();
+
+    pollIds.put(trafficRecord.getPollId(), pollId);
+    expectedTallies.put(trafficRecord.getPollId(), tally);
+    lastReads.put(trafficRecord.getPollId(), new LinkedHashMap<>());
+  }
+
+  private void send(String path) {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+  }
+
+  private String get(String path) throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+  }
+
+  private static String quote(String string) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char c : string.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < ' ') {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
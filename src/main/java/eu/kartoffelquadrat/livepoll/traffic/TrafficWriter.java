@@ -0,0 +1,119 @@
+package eu.kartoffelquadrat.livepoll.traffic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes traffic records into the compact binary trace format. Layout: a magic number and a
+ * version byte, followed by one entry per record. Each entry starts with the type byte and the
+ * varint encoded nanosecond delta to the previous record. Strings are only written in full on
+ * their first occurrence, later occurrences reference them by index. Every record is encoded
+ * completely before it is written, so a record that can not be encoded leaves no partial entry
+ * behind and the trace stays readable. Not thread safe.
+ *
+ * @author Maximilian Schiedermeier
+ */
+public class TrafficWriter implements Closeable {
+
+  static final int MAGIC = 0x4c505452;
+  static final int VERSION = 1;
+
+  private final DataOutputStream out;
+  private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+  private final DataOutputStream record = new DataOutputStream(recordBuffer);
+  private final Map<String, Integer> stringIndex = new HashMap<>();
+  // Strings first written by the record currently encoded, added to the index once it is written
+  private final Map<String, Integer> newStrings = new HashMap<>();
+  private long previousNanos;
+
+  /**
+   * Writer constructor. Writes the trace header right away.
+   *
+   * @param out as the stream to write the trace to. Should be buffered.
+   * @throws IOException in case the header could not be written.
+   */
+  public TrafficWriter(OutputStream out) throws IOException {
+    this.out = new DataOutputStream(out);
+    this.out.writeInt(MAGIC);
+    this.out.writeByte(VERSION);
+  }
+
+  /**
+   * Appends a single record to the trace. Records must be written in order of their timestamps.
+   *
+   * @param trafficRecord as the record to encode.
+   * @throws IOException in case the record can not be encoded, e.g. because a string exceeds 65535
+   *                     encoded bytes, or writing to the underlying stream failed. Nothing of the
+   *                     record is written then.
+   */
+  public void write(TrafficRecord trafficRecord) throws IOException {
+
+    recordBuffer.reset();
+    newStrings.clear();
+    encode(trafficRecord);
+    recordBuffer.writeTo(out);
+    stringIndex.putAll(newStrings);
+    previousNanos = trafficRecord.getNanos();
+  }
+
+  private void encode(TrafficRecord trafficRecord) throws IOException {
+
+    record.writeByte(trafficRecord.getType().ordinal());
+    writeVarLong(trafficRecord.getNanos() - previousNanos);
+    writeString(trafficRecord.getPollId());
+    writeString(trafficRecord.getText());
+    writeString(trafficRecord.getClient());
+
+    if (trafficRecord.getType() == TrafficRecord.Type.CREATE) {
+      writeVarLong(trafficRecord.getOptions().length);
+      for (String option : trafficRecord.getOptions()) {
+        writeString(option);
+      }
+    } else if (trafficRecord.getType() == TrafficRecord.Type.READ) {
+      // zigzag encoding, so the negative bogus amounts stay short
+      int value = trafficRecord.getValue();
+      writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+  }
+
+  /**
+   * Writes any buffered data to the underlying stream.
+   *
+   * @throws IOException in case flushing failed.
+   */
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  private void writeString(String string) throws IOException {
+    Integer index = stringIndex.get(string);
+    if (index == null) {
+      index = newStrings.get(string);
+    }
+    if (index != null) {
+      writeVarLong(index + 1);
+    } else {
+      writeVarLong(0);
+      record.writeUTF(string);
+      newStrings.put(string, stringIndex.size() + newStrings.size());
+    }
+  }
+
+  private void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      record.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    record.writeByte((int) value);
+  }
+}
@@ -0,0 +1,197 @@
+package eu.kartoffelquadrat.livepoll;
+
+import eu.kartoffelquadrat.livepoll.pollutils.DateAndTopicPollIdGenerator;
+import eu.kartoffelquadrat.livepoll.store.InMemoryPollStore;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PollManagerTest {
+
+  private static final String[] OPTIONS = {"Yes", "Unsure", "No"};
+
+  private static PollManager newManager(long budgetBytes, boolean evictOldest) {
+    return new PollManager(new DateAndTopicPollIdGenerator(), new InMemoryPollStore(), budgetBytes,
+        evictOldest);
+  }
+
+  private static long footprintOf(String topic) {
+    PollManager probe = newManager(Long.MAX_VALUE, false);
+    probe.addPoll(new Poll(topic, OPTIONS));
+    return (long) probe.getUsage().get("usedBytes");
+  }
+
+  @Test
+  public void rejectsPollBeyondBudgetTest() {
+
+    long pollBytes = footprintOf("Topic 1");
+    PollManager manager = newManager(pollBytes * 2 + pollBytes / 2, false);
+    String first = manager.addPoll(new Poll("Topic 1", OPTIONS));
+    manager.addPoll(new Poll("Topic 2", OPTIONS));
+
+    try {
+      manager.addPoll(new Poll("Topic 3", OPTIONS));
+      Assert.fail("Third poll should not fit into the budget.");
+    } catch (PollBudgetExceededException e) {
+      // expected
+    }
+    Assert.assertTrue(manager.isExistentPoll(first));
+    Map<String, Object> usage = manager.getUsage();
+    Assert.assertEquals(2, usage.get("polls"));
+    Assert.assertEquals(1, usage.get("rejectedPolls"));
+  }
+
+  @Test
+  public void evictsOldestPollTest() {
+
+    long pollBytes = footprintOf("Topic 1");
+    PollManager manager = newManager(pollBytes * 2 + pollBytes / 2, true);
+    String first = manager.addPoll(new Poll("Topic 1", OPTIONS));
+    String second = manager.addPoll(new Poll("Topic 2", OPTIONS));
+    String third = manager.addPoll(new Poll("Topic 3", OPTIONS));
+
+    Assert.assertFalse(manager.isExistentPoll(first));
+    Assert.assertTrue(manager.isExistentPoll(second));
+    Assert.assertTrue(manager.isExistentPoll(third));
+    Assert.assertEquals(1, manager.getUsage().get("evictedPolls"));
+  }
+
+  @Test(expected = PollBudgetExceededException.class)
+  public void rejectsOversizedPollEvenWhenEvictingTest() {
+    String[] options = new String[5000];
+    for (int i = 0; i < options.length; i++) {
+      options[i] = "Option " + i;
+    }
+    PollManager manager = newManager(100000, true);
+    manager.addPoll(new Poll("Thousands of options", options));
+  }
+
+  @Test
+  public void accountsDiskUsageTest() {
+
+    PollManager manager = newManager(1000000, false);
+    Poll poll = new Poll("Topic", OPTIONS);
+    String pollId = manager.addPoll(poll);
+    long heapBytes = (long) manager.getUsage().get("heapBytes");
+    manager.updateDiskUsage(pollId, poll, 1500);
+    Assert.assertEquals(1500L, manager.getUsage().get("diskBytes"));
+    Assert.assertEquals(heapBytes + 1500, manager.getUsage().get("usedBytes"));
+  }
+
+  @Test
+  public void deletesFilesOfPollEvictedWhileWritingTest() throws IOException {
+
+    long pollBytes = footprintOf("Topic 1");
+    PollManager manager = newManager(pollBytes + pollBytes / 2, true);
+    Poll poll = new Poll("Topic 1", OPTIONS);
+    String pollId = manager.addPoll(poll);
+
+    // A concurrent creation evicts the poll, before its QR codes are written and accounted
+    manager.addPoll(new Poll("Topic 2", OPTIONS));
+    long usedBytes = (long) manager.getUsage().get("usedBytes");
+    Files.createDirectories(new File(PollLauncher.pollTmpDir).toPath());
+    File qrFile = new File(PollLauncher.pollTmpDir, pollId + "-yes.png");
+    Files.write(qrFile.toPath(), new byte[500]);
+    manager.updateDiskUsage(pollId, poll, 500);
+
+    Assert.assertFalse(qrFile.exists());
+    Assert.assertEquals(usedBytes, manager.getUsage().get("usedBytes"));
+  }
+
+  /**
+   * Builds inlined QR codes that occupy about twice the heap and disk bytes of a regular poll.
+   */
+  private static Map<String, String> largeDataUris(long pollBytes) {
+    Map<String, String> dataUris = new LinkedHashMap<>();
+    for (String option : OPTIONS) {
+      dataUris.put(option.toLowerCase(), "x".repeat((int) (pollBytes * 2 / OPTIONS.length)));
+    }
+    return dataUris;
+  }
+
+  @Test
+  public void rejectsInlinedQrCodesBeyondBudgetTest() {
+
+    long pollBytes = footprintOf("Topic 1");
+    PollManager manager = newManager(pollBytes * 2 + pollBytes / 2, false);
+    String first = manager.addPoll(new Poll("Topic 1", OPTIONS));
+    Poll poll = new Poll("Topic 2", OPTIONS);
+    String second = manager.addPoll(poll);
+
+    try {
+      manager.cacheQrImages(second, poll, largeDataUris(pollBytes));
+      Assert.fail("Inlined QR codes should not fit into the budget.");
+    } catch (PollBudgetExceededException e) {
+      // expected
+    }
+    Assert.assertTrue(manager.isExistentPoll(first));
+    Assert.assertFalse(manager.isExistentPoll(second));
+    Assert.assertNull(manager.getQrImage(second, "yes"));
+    Map<String, Object> usage = manager.getUsage();
+    Assert.assertTrue((long) usage.get("usedBytes") <= pollBytes * 2 + pollBytes / 2);
+    Assert.assertEquals(1, usage.get("rejectedPolls"));
+  }
+
+  @Test
+  public void evictsForInlinedQrCodesTest() {
+
+    long pollBytes = footprintOf("Topic 1");
+    PollManager manager = newManager(pollBytes * 2 + pollBytes / 2, true);
+    String first = manager.addPoll(new Poll("Topic 1", OPTIONS));
+    Poll poll = new Poll("Topic 2", OPTIONS);
+    String second = manager.addPoll(poll);
+    manager.cacheQrImages(second, poll, largeDataUris(pollBytes));
+
+    Assert.assertFalse(manager.isExistentPoll(first));
+    Assert.assertNotNull(manager.getQrImage(second, "yes"));
+    Map<String, Object> usage = manager.getUsage();
+    Assert.assertTrue((long) usage.get("usedBytes") <= pollBytes * 2 + pollBytes / 2);
+    Assert.assertEquals(0L, usage.get("diskBytes"));
+    Assert.assertEquals(1, usage.get("evictedPolls"));
+  }
+
+  @Test
+  public void discardsFailedPollTest() throws IOException {
+
+    PollManager manager = newManager(1000000, false);
+    Poll poll = new Poll("Topic", OPTIONS);
+    String pollId = manager.addPoll(poll);
+    Files.createDirectories(new File(PollLauncher.pollTmpDir).toPath());
+    File qrFile = new File(PollLauncher.pollTmpDir, pollId + "-yes.png");
+    Files.write(qrFile.toPath(), new byte[500]);
+
+    // QR generation failed after the first file was written
+    manager.discardPoll(pollId, poll);
+
+    Assert.assertFalse(manager.isExistentPoll(pollId));
+    Assert.assertFalse(qrFile.exists());
+    Map<String, Object> usage = manager.getUsage();
+    Assert.assertEquals(0, usage.get("polls"));
+    Assert.assertEquals(0L, usage.get("usedBytes"));
+  }
+
+  @Test
+  public void lookupDoesNotWaitForManagerLockTest()
+      throws InterruptedException, ExecutionException, TimeoutException {
+
+    PollManager manager = newManager(1000000, false);
+    Poll poll = new Poll("Topic", OPTIONS);
+    String pollId = manager.addPoll(poll);
+
+    // Votes must not queue up behind a poll creation or eviction holding the lock
+    synchronized (manager) {
+      Assert.assertSame(poll, CompletableFuture
+          .supplyAsync(() -> manager.getPollByIdentifier(pollId)).get(5, TimeUnit.SECONDS));
+      Assert.assertTrue(CompletableFuture
+          .supplyAsync(() -> manager.isExistentPoll(pollId)).get(5, TimeUnit.SECONDS));
+    }
+  }
+}
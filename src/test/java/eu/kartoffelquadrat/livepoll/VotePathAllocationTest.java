@@ -0,0 +1,107 @@
+package eu.kartoffelquadrat.livepoll;
+
+import eu.kartoffelquadrat.livepoll.controllers.PollController;
+import eu.kartoffelquadrat.livepoll.pollutils.DateAndTopicPollIdGenerator;
+import eu.kartoffelquadrat.livepoll.qrgenerator.ExternalIpResolver;
+import eu.kartoffelquadrat.livepoll.qrgenerator.LocalIpResolver;
+import eu.kartoffelquadrat.livepoll.qrgenerator.LocalResourceEncoder;
+import eu.kartoffelquadrat.livepoll.qrgenerator.QrImageGenerator;
+import eu.kartoffelquadrat.livepoll.store.InMemoryPollStore;
+import eu.kartoffelquadrat.livepoll.traffic.TrafficRecorder;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Allocation regression tests for the vote path. Every operation is run in a loop and the bytes
+ * allocated by the current thread are divided by the amount of operations. The build fails if an
+ * operation allocates more than its ceiling. Ceilings (bytes per operation) can be overridden with
+ * the system properties alloc.ceiling.vote, alloc.ceiling.votes and alloc.ceiling.register.
+ */
+public class VotePathAllocationTest {
+
+  private static final int WARMUP_OPERATIONS = 50000;
+
+  private static final int MEASURED_OPERATIONS = 1000000;
+
+  private com.sun.management.ThreadMXBean threadBean;
+
+  private Poll poll;
+
+  @Before
+  public void setUp() {
+    Assume.assumeTrue(ManagementFactory.getThreadMXBean()
+        instanceof com.sun.management.ThreadMXBean);
+    threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    poll = new Poll("Are cats cooler than dogs?", new String[] {"Yes", "Not sure", "No"});
+  }
+
+  /**
+   * Measures the average amount of bytes an operation allocates on the current thread.
+   *
+   * @param operation as the operation to measure.
+   * @return allocated bytes per operation, rounded down.
+   */
+  private long bytesPerOperation(Runnable operation) {
+
+    // Warm up, so the measured loop runs compiled code
+    for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+      operation.run();
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+      operation.run();
+    }
+    long after = threadBean.getThreadAllocatedBytes(threadId);
+    return (after - before) / MEASURED_OPERATIONS;
+  }
+
+  private static void assertCeiling(String operation, long bytesPerOperation, String property,
+                                    long defaultCeiling) {
+    long ceiling = Long.getLong(property, defaultCeiling);
+    System.out.println(operation + ": " + bytesPerOperation + " bytes/op (ceiling " + ceiling
+        + ")");
+    Assert.assertTrue(operation + " allocates " + bytesPerOperation
+            + " bytes per operation, ceiling is " + ceiling + " (" + property + ")",
+        bytesPerOperation <= ceiling);
+  }
+
+  @Test
+  public void voteForOptionTest() {
+    long bytes = bytesPerOperation(() -> poll.voteForOption("not-sure"));
+    assertCeiling("Poll.voteForOption", bytes, "alloc.ceiling.vote", 0);
+  }
+
+  @Test
+  public void getVotesTest() {
+    poll.voteForOption("yes");
+    long bytes = bytesPerOperation(() -> poll.getVotes("yes"));
+    assertCeiling("Poll.getVotes", bytes, "alloc.ceiling.votes", 0);
+  }
+
+  @Test
+  public void registerVoteTest() throws IOException {
+
+    PollManager pollManager = new PollManager(new DateAndTopicPollIdGenerator(),
+        new InMemoryPollStore(), Long.MAX_VALUE, false);
+    String pollId = pollManager.addPoll(poll);
+    PollController controller = new PollController(new QrImageGenerator(),
+        new LocalResourceEncoder(false, new LocalIpResolver(), new ExternalIpResolver()),
+        new LocalIpResolver(), pollManager, new TrafficRecorder("", 200, 1024));
+    MockHttpServletRequest request = new MockHttpServletRequest();
+
+    // Only the confirmation message sent back to the client may allocate
+    long bytes = bytesPerOperation(() -> controller.registerVote(pollId, "no", request));
+    assertCeiling("PollController.registerVote", bytes, "alloc.ceiling.register", 256);
+    Assert.assertEquals(WARMUP_OPERATIONS + MEASURED_OPERATIONS, poll.getVotes("no"));
+  }
+}
@@ -0,0 +1,62 @@
+package eu.kartoffelquadrat.livepoll.pollutils;
+
+import org.junit.Test;
+
+/**
+ * Micro benchmark comparing the single pass slug engine to the former regex based implementation.
+ * Both are warmed up before measuring, results are printed to the console. Timings depend on the
+ * host, so nothing is asserted. Excluded from the default build, run with: mvn test -Pbenchmark
+ */
+public class SlugifierBenchmarkTest {
+
+  private static final String[] INPUTS = {
+      "Which Dockerfile instruction is excuted during image build?",
+      "Emul. = Simul. of existing HW",
+      "Grüße aus Köln!",
+      "Yes", "Unsure", "No"
+  };
+
+  private static final int WARMUP_ROUNDS = 20000;
+
+  private static final int MEASURED_ROUNDS = 100000;
+
+  @Test
+  public void compareToRegexTest() {
+
+    // Warm up both implementations, so the JIT has compiled them
+    int sink = runLegacy(WARMUP_ROUNDS) + runSlugifier(WARMUP_ROUNDS);
+
+    long start = System.nanoTime();
+    sink += runLegacy(MEASURED_ROUNDS);
+    long legacyNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    sink += runSlugifier(MEASURED_ROUNDS);
+    long slugifierNanos = System.nanoTime() - start;
+
+    int operations = MEASURED_ROUNDS * INPUTS.length;
+    System.out.println("regex slug:   " + legacyNanos / operations + " ns/op");
+    System.out.println("single pass:  " + slugifierNanos / operations + " ns/op (checksum " + sink
+        + ")");
+  }
+
+  private static int runLegacy(int rounds) {
+    int sink = 0;
+    for (int i = 0; i < rounds; i++) {
+      for (String input : INPUTS) {
+        sink += SlugifierTest.legacySlug(input).length();
+      }
+    }
+    return sink;
+  }
+
+  private static int runSlugifier(int rounds) {
+    int sink = 0;
+    for (int i = 0; i < rounds; i++) {
+      for (String input : INPUTS) {
+        sink += Slugifier.slugify(input).length();
+      }
+    }
+    return sink;
+  }
+}
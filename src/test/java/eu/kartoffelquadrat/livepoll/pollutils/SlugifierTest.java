@@ -0,0 +1,103 @@
+package eu.kartoffelquadrat.livepoll.pollutils;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Property based tests for the single pass slug engine. Every property is checked against a large
+ * number of random strings, generated from a fixed seed so failures are reproducible.
+ */
+public class SlugifierTest {
+
+  private static final int RUNS = 20000;
+
+  // Characters the random generator draws from: ASCII, whitespace, control and accented latin
+  private static final String ALPHABET = "aBzZ09:-_ #*+!$&^[]|\\/.,;?\t\n\r\u000B\f\u0000\u001F"
+      + "äöüÄÖÜßéèçñøæœłĳđÞÿ×÷€漢";
+
+  /**
+   * Regex based reference implementation, as used before the single pass engine.
+   */
+  static String legacySlug(String input) {
+    String sanitized = input.replaceAll("[^a-zA-Z\\d\\s:]", "");
+    sanitized = sanitized.trim();
+    sanitized = sanitized.replaceAll("\\s+", "-");
+    sanitized = sanitized.toLowerCase();
+    return sanitized.replaceAll("\\[a-zA-Z|-]", "");
+  }
+
+  static String randomString(Random random, String alphabet) {
+    int length = random.nextInt(40);
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void asciiCodesAreStable() {
+    Random random = new Random(26);
+    for (int i = 0; i < RUNS; i++) {
+      String ascii = randomString(random, ALPHABET.substring(0, ALPHABET.indexOf('ä')));
+      Assert.assertEquals("Code changed for \"" + ascii + "\"", legacySlug(ascii),
+          Slugifier.slugify(ascii));
+    }
+  }
+
+  @Test
+  public void slugEqualsLegacySlugOfSanitizedString() {
+    Random random = new Random(27);
+    for (int i = 0; i < RUNS; i++) {
+      String input = randomString(random, ALPHABET);
+      Assert.assertEquals(legacySlug(AlphabetSanitizer.sanitize(input)),
+          Slugifier.slugify(input));
+    }
+  }
+
+  @Test
+  public void slugIsUrlAndFileSystemSafe() {
+    Random random = new Random(28);
+    for (int i = 0; i < RUNS; i++) {
+      String slug = Slugifier.slugify(randomString(random, ALPHABET));
+      Assert.assertTrue("Illegal character in \"" + slug + "\"", slug.matches("[a-z0-9:-]*"));
+      Assert.assertFalse(slug.startsWith("-"));
+      Assert.assertFalse(slug.endsWith("-"));
+      Assert.assertFalse(slug.contains("--"));
+    }
+  }
+
+  @Test
+  public void transliteratedLettersAreNotStripped() {
+    Random random = new Random(29);
+    String accented = "äöüÄÖÜßéèçñøæœłĳđÞÿ";
+    for (int i = 0; i < RUNS; i++) {
+      String input = randomString(random, accented);
+      int minimumLength = input.length();
+      Assert.assertTrue(Slugifier.slugify(input).length() >= minimumLength);
+    }
+  }
+
+  @Test
+  public void germanUmlautsTest() {
+    Assert.assertEquals("gruesse-aus-koeln", Slugifier.slugify("Grüße aus Köln!"));
+    Assert.assertEquals("aeoeue-ss", Slugifier.slugify(" ÄÖÜ  ß "));
+  }
+
+  @Test
+  public void accentedLatinTest() {
+    Assert.assertEquals("creme-brulee-a-la-francaise",
+        Slugifier.slugify("Crème brûlée à la française"));
+    Assert.assertEquals("lodz-krakow", Slugifier.slugify("Łódź – Kraków"));
+    Assert.assertEquals("3-4", Slugifier.slugify("3 × 4"));
+  }
+
+  @Test
+  public void existingCodesTest() {
+    Assert.assertEquals("emul-is-for-hw-simul-for-sw",
+        Slugifier.slugify("Emul. is for HW, Simul. for SW"));
+    Assert.assertEquals("build-outside-run-inside", Slugifier.slugify("Build outside, run inside"));
+    Assert.assertEquals("time:-10-min", Slugifier.slugify(" Time: 10 min "));
+  }
+}
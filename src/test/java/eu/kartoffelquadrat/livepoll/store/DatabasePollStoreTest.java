@@ -0,0 +1,166 @@
+package eu.kartoffelquadrat.livepoll.store;
+
+import eu.kartoffelquadrat.livepoll.Poll;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DatabasePollStoreTest {
+
+  private static final String URL = "jdbc:h2:mem:polls-test;DB_CLOSE_DELAY=-1";
+
+  private DatabasePollStore store;
+
+  private Connection query;
+
+  @Before
+  public void setUp() throws SQLException {
+    // Long flush interval, so only the explicit flushes of the tests write to the database
+    store = new DatabasePollStore(URL, 3600000);
+    store.open();
+    query = DriverManager.getConnection(URL);
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    store.close();
+    query.createStatement().execute("DROP ALL OBJECTS");
+    query.close();
+  }
+
+  /**
+   * Looks up the persisted votes of an option, in all archived polls with the given id.
+   *
+   * @param pollId as the id of the archived polls.
+   * @param code   as the kebap notated option to look up.
+   * @return the votes of the option, oldest archived poll first.
+   */
+  private List<Integer> archivedVotes(String pollId, String code) throws SQLException {
+    PreparedStatement statement = query.prepareStatement("SELECT O.VOTES FROM OPTIONS O "
+        + "JOIN POLLS P ON O.POLL_NR = P.NR WHERE P.POLL_ID = ? AND O.CODE = ? ORDER BY P.NR");
+    statement.setString(1, pollId);
+    statement.setString(2, code);
+    ResultSet result = statement.executeQuery();
+    List<Integer> votes = new LinkedList<>();
+    while (result.next()) {
+      votes.add(result.getInt(1));
+    }
+    return votes;
+  }
+
+  private int persistedVotes(String pollId, String code) throws SQLException {
+    List<Integer> votes = archivedVotes(pollId, code);
+    Assert.assertEquals("Expected exactly one persisted option " + code, 1, votes.size());
+    return votes.get(0);
+  }
+
+  @Test
+  public void votesAreFlushedAsDeltasTest() throws SQLException {
+
+    Poll poll = new Poll("Are cats cooler than dogs?", new String[] {"Yes", "No"});
+    store.put("cats", poll);
+    for (int i = 0; i < 5; i++) {
+      poll.voteForOption("yes");
+    }
+
+    // Nothing is written per vote
+    Assert.assertFalse(query.createStatement().executeQuery("SELECT * FROM POLLS").next());
+
+    store.flush();
+    Assert.assertEquals(5, persistedVotes("cats", "yes"));
+    Assert.assertEquals(0, persistedVotes("cats", "no"));
+
+    poll.voteForOption("yes");
+    poll.voteForOption("no");
+    store.flush();
+    Assert.assertEquals(6, persistedVotes("cats", "yes"));
+    Assert.assertEquals(1, persistedVotes("cats", "no"));
+  }
+
+  @Test
+  public void removedPollKeepsFinalTallyTest() throws SQLException {
+
+    Poll poll = new Poll("Tabs or spaces?", new String[] {"Tabs", "Spaces"});
+    store.put("tabs", poll);
+    store.flush();
+    poll.voteForOption("spaces");
+    store.remove("tabs");
+    Assert.assertFalse(store.contains("tabs"));
+
+    store.flush();
+    Assert.assertEquals(1, persistedVotes("tabs", "spaces"));
+
+    // A vote request that obtained the poll before its removal counts its vote late
+    poll.voteForOption("spaces");
+    store.flush();
+    Assert.assertEquals(2, persistedVotes("tabs", "spaces"));
+
+    // The poll is no longer tracked after that grace flush
+    poll.voteForOption("spaces");
+    store.flush();
+    Assert.assertEquals(2, persistedVotes("tabs", "spaces"));
+  }
+
+  @Test
+  public void reusedIdKeepsArchivedTallyTest() throws SQLException {
+
+    Poll first = new Poll("Cats or dogs?", new String[] {"Cats", "Dogs"});
+    store.put("cats", first);
+    store.flush();
+    first.voteForOption("cats");
+    first.voteForOption("cats");
+
+    // Same topic asked again, before the last votes of the first poll were flushed
+    Poll second = new Poll("Cats or dogs?", new String[] {"Cats", "Dogs"});
+    store.remove("cats");
+    store.put("cats", second);
+    Assert.assertSame(second, store.get("cats"));
+    second.voteForOption("dogs");
+
+    store.flush();
+    Assert.assertEquals(List.of(2, 0), archivedVotes("cats", "cats"));
+    Assert.assertEquals(List.of(0, 1), archivedVotes("cats", "dogs"));
+  }
+
+  @Test
+  public void reopenKeepsArchivedTallyTest() throws SQLException {
+
+    Poll poll = new Poll("Cats or dogs?", new String[] {"Cats", "Dogs"});
+    store.put("cats", poll);
+    for (int i = 0; i < 7; i++) {
+      poll.voteForOption("cats");
+    }
+    store.close();
+
+    // Restart on the same day, so the same id is generated again
+    store = new DatabasePollStore(URL, 3600000);
+    store.open();
+    Assert.assertFalse(store.contains("cats"));
+    store.put("cats", new Poll("Cats or dogs?", new String[] {"Cats", "Dogs"}));
+    store.flush();
+    Assert.assertEquals(List.of(7, 0), archivedVotes("cats", "cats"));
+    Assert.assertEquals(List.of(0, 0), archivedVotes("cats", "dogs"));
+  }
+
+  @Test
+  public void closeFlushesRemainingVotesTest() throws SQLException {
+
+    Poll poll = new Poll("Coffee?", new String[] {"Yes", "No"});
+    store.put("coffee", poll);
+    poll.voteForOption("no");
+    store.close();
+    Assert.assertEquals(1, persistedVotes("coffee", "no"));
+
+    // reopen, so tear down can close again
+    store = new DatabasePollStore(URL, 3600000);
+    store.open();
+  }
+}
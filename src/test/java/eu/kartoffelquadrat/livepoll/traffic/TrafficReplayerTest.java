@@ -0,0 +1,125 @@
+package eu.kartoffelquadrat.livepoll.traffic;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Replays traces against a minimal stand-in for the poll REST endpoints, which assigns its own
+ * poll ids and counts the votes it receives.
+ */
+public class TrafficReplayerTest {
+
+  private static final String[] NO_OPTIONS = new String[0];
+
+  private HttpServer server;
+
+  private String baseUrl;
+
+  // Poll id assigned by the stand-in, to option codes and received votes
+  private final Map<String, Map<String, AtomicInteger>> tallies = new ConcurrentHashMap<>();
+
+  private final AtomicInteger createdPolls = new AtomicInteger();
+
+  // Option code whose votes the stand-in silently drops, to provoke a mismatch
+  private volatile String lostOption = "";
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/polls", this::handle);
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+
+    String[] path = exchange.getRequestURI().getPath().split("/");
+    String response;
+    if (exchange.getRequestMethod().equals("POST")) {
+      exchange.getRequestBody().readAllBytes();
+      response = "replayed-" + createdPolls.incrementAndGet();
+      tallies.put(response, new ConcurrentHashMap<>());
+    } else {
+      // /polls/{pollid}/{options|outcome}/{option}
+      AtomicInteger tally = tallies.get(path[2]).computeIfAbsent(path[4], k -> new AtomicInteger());
+      if (path[3].equals("options") && !path[4].equals(lostOption)) {
+        tally.incrementAndGet();
+      }
+      response = String.valueOf(tally.get());
+    }
+    byte[] body = response.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static List<TrafficRecord> lectureTrace() {
+    return List.of(
+        new TrafficRecord(TrafficRecord.Type.CREATE, 0, "2026-10-19-cats", "Cats?", "127.0.0.1",
+            new String[] {"Yes", "Not sure", "No"}, 0),
+        new TrafficRecord(TrafficRecord.Type.VOTE, 100000000, "2026-10-19-cats", "yes",
+            "192.168.0.12", NO_OPTIONS, 0),
+        new TrafficRecord(TrafficRecord.Type.VOTE, 200000000, "2026-10-19-cats", "not-sure",
+            "192.168.0.13", NO_OPTIONS, 0),
+        new TrafficRecord(TrafficRecord.Type.VOTE, 200000001, "2026-10-19-cats", "yes",
+            "192.168.0.14", NO_OPTIONS, 0),
+        new TrafficRecord(TrafficRecord.Type.READ, 300000000, "2026-10-19-cats", "yes",
+            "127.0.0.1", NO_OPTIONS, 2),
+        // Poll created before the recording started, and an option that does not exist
+        new TrafficRecord(TrafficRecord.Type.VOTE, 400000000, "2026-10-18-dogs", "yes",
+            "192.168.0.12", NO_OPTIONS, 0),
+        new TrafficRecord(TrafficRecord.Type.VOTE, 500000000, "2026-10-19-cats", "maybe",
+            "192.168.0.12", NO_OPTIONS, 0));
+  }
+
+  @Test
+  public void replayMapsIdsAndMatchesTalliesTest() throws IOException, InterruptedException {
+
+    TrafficReplayer replayer = new TrafficReplayer(baseUrl);
+    replayer.replay(lectureTrace(), Double.POSITIVE_INFINITY);
+
+    Assert.assertEquals(1, createdPolls.get());
+    Assert.assertEquals(2, tallies.get("replayed-1").get("yes").get());
+    Assert.assertEquals(1, tallies.get("replayed-1").get("not-sure").get());
+    Assert.assertEquals(2, replayer.getSkipped());
+    Assert.assertEquals(0, replayer.compareTallies());
+  }
+
+  @Test
+  public void replayDetectsLostVotesTest() throws IOException, InterruptedException {
+
+    lostOption = "not-sure";
+    TrafficReplayer replayer = new TrafficReplayer(baseUrl);
+    replayer.replay(lectureTrace(), Double.POSITIVE_INFINITY);
+    Assert.assertEquals(1, replayer.compareTallies());
+  }
+
+  @Test
+  public void replayKeepsScaledPaceTest() throws IOException, InterruptedException {
+
+    // The trace spans 500 ms, so a replay at 5 times the speed takes at least 100 ms
+    TrafficReplayer replayer = new TrafficReplayer(baseUrl);
+    long start = System.nanoTime();
+    replayer.replay(lectureTrace(), 5);
+    Assert.assertTrue(System.nanoTime() - start >= 100000000);
+    Assert.assertEquals(0, replayer.compareTallies());
+  }
+}
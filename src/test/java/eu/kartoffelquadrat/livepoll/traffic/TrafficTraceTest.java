@@ -0,0 +1,150 @@
+package eu.kartoffelquadrat.livepoll.traffic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TrafficTraceTest {
+
+  @Test
+  public void roundTripTest() throws IOException {
+
+    ByteArrayOutputStream trace = new ByteArrayOutputStream();
+    try (TrafficWriter writer = new TrafficWriter(trace)) {
+      writer.write(new TrafficRecord(TrafficRecord.Type.CREATE, 1000, "2026-10-19-cats",
+          "Cats?", "127.0.0.1", new String[] {"Yes", "No"}, 0));
+      writer.write(new TrafficRecord(TrafficRecord.Type.VOTE, 5000000000L, "2026-10-19-cats",
+          "yes", "192.168.0.12", new String[0], 0));
+      writer.write(new TrafficRecord(TrafficRecord.Type.READ, 5000000001L, "2026-10-19-cats",
+          "yes", "127.0.0.1", new String[0], 1));
+      writer.write(new TrafficRecord(TrafficRecord.Type.READ, 5000000002L, "2026-10-19-dogs",
+          "no", "127.0.0.1", new String[0], -42));
+    }
+
+    List<TrafficRecord> records =
+        new TrafficReader(new ByteArrayInputStream(trace.toByteArray())).readAll();
+    Assert.assertEquals(4, records.size());
+
+    TrafficRecord creation = records.get(0);
+    Assert.assertEquals(TrafficRecord.Type.CREATE, creation.getType());
+    Assert.assertEquals(1000, creation.getNanos());
+    Assert.assertEquals("Cats?", creation.getText());
+    Assert.assertArrayEquals(new String[] {"Yes", "No"}, creation.getOptions());
+
+    TrafficRecord vote = records.get(1);
+    Assert.assertEquals(TrafficRecord.Type.VOTE, vote.getType());
+    Assert.assertEquals(5000000000L, vote.getNanos());
+    Assert.assertEquals("2026-10-19-cats", vote.getPollId());
+    Assert.assertEquals("yes", vote.getText());
+    Assert.assertEquals("192.168.0.12", vote.getClient());
+
+    Assert.assertEquals(1, records.get(2).getValue());
+    Assert.assertEquals(-42, records.get(3).getValue());
+    Assert.assertEquals(5000000002L, records.get(3).getNanos());
+  }
+
+  @Test
+  public void repeatedStringsAreReferencedTest() throws IOException {
+
+    ByteArrayOutputStream trace = new ByteArrayOutputStream();
+    try (TrafficWriter writer = new TrafficWriter(trace)) {
+      for (int i = 0; i < 1000; i++) {
+        writer.write(new TrafficRecord(TrafficRecord.Type.VOTE, i * 1000L,
+            "2026-10-19-a-rather-long-poll-identifier", "unsure", "192.168.0.12", new String[0], 0));
+      }
+    }
+
+    // header, then per vote: type, 2 byte delta and three 1 byte string references
+    Assert.assertTrue(trace.size() < 5 + 1000 * 6 + 100);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsForeignFileTest() throws IOException {
+    new TrafficReader(new ByteArrayInputStream("not a trace".getBytes()));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsUnknownRecordTypeTest() throws IOException {
+
+    ByteArrayOutputStream trace = new ByteArrayOutputStream();
+    new TrafficWriter(trace).flush();
+    trace.write(TrafficRecord.Type.values().length);
+    new TrafficReader(new ByteArrayInputStream(trace.toByteArray())).read();
+  }
+
+  @Test
+  public void recorderFlushesWithoutCloseTest() throws IOException, InterruptedException {
+
+    Path traceDir = Files.createTempDirectory("livepoll");
+    File traceFile = traceDir.resolve("lecture.trace").toFile();
+    traceFile.deleteOnExit();
+    traceDir.toFile().deleteOnExit();
+    TrafficRecorder recorder = new TrafficRecorder(traceFile.getPath(), 20, 1024);
+    try {
+      recorder.recordCreation("2026-10-19-cats", "Cats?", new String[] {"Yes", "No"},
+          "127.0.0.1");
+      recorder.recordVote("2026-10-19-cats", "yes", "192.168.0.12");
+
+      // The trace must reach the disk without a clean shutdown, e.g. if the process is killed
+      Thread.sleep(500);
+      try (TrafficReader reader = new TrafficReader(new FileInputStream(traceFile))) {
+        List<TrafficRecord> records = reader.readAll();
+        Assert.assertEquals(2, records.size());
+        Assert.assertEquals(TrafficRecord.Type.VOTE, records.get(1).getType());
+      }
+    } finally {
+      recorder.close();
+    }
+  }
+
+  @Test
+  public void oversizedRecordLeavesTraceReadableTest() throws IOException {
+
+    ByteArrayOutputStream trace = new ByteArrayOutputStream();
+    try (TrafficWriter writer = new TrafficWriter(trace)) {
+      writer.write(new TrafficRecord(TrafficRecord.Type.VOTE, 1000, "2026-10-19-cats", "yes",
+          "127.0.0.1", new String[0], 0));
+      try {
+        writer.write(new TrafficRecord(TrafficRecord.Type.CREATE, 2000, "2026-10-19-huge",
+            "x".repeat(70000), "127.0.0.1", new String[] {"new option"}, 0));
+        Assert.fail("Topic exceeds the string size limit of the trace format.");
+      } catch (IOException e) {
+        // expected
+      }
+      writer.write(new TrafficRecord(TrafficRecord.Type.VOTE, 3000, "2026-10-19-cats", "no",
+          "127.0.0.1", new String[0], 0));
+    }
+
+    List<TrafficRecord> records =
+        new TrafficReader(new ByteArrayInputStream(trace.toByteArray())).readAll();
+    Assert.assertEquals(2, records.size());
+    Assert.assertEquals("no", records.get(1).getText());
+    Assert.assertEquals(3000, records.get(1).getNanos());
+  }
+
+  @Test
+  public void recorderKeepsExistingTraceTest() throws IOException {
+
+    Path traceDir = Files.createTempDirectory("livepoll");
+    File traceFile = traceDir.resolve("lecture.trace").toFile();
+    Files.write(traceFile.toPath(), new byte[] {42});
+    TrafficRecorder recorder = new TrafficRecorder(traceFile.getPath(), 20, 1024);
+    recorder.close();
+
+    Assert.assertArrayEquals(new byte[] {42}, Files.readAllBytes(traceFile.toPath()));
+    Assert.assertNotEquals(traceFile, recorder.getTraceFile());
+    Assert.assertTrue(
+        recorder.getTraceFile().getName().matches("lecture-\\d{8}-\\d{6}\\.trace"));
+    Assert.assertEquals(traceDir.toFile(), recorder.getTraceFile().getParentFile());
+    recorder.getTraceFile().delete();
+    traceFile.delete();
+    traceDir.toFile().delete();
+  }
+}